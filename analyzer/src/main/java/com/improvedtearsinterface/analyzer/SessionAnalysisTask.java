@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface.analyzer;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Analyzes a list of session files, splitting it in halves until the pieces are small
+ * enough to read on one thread and merging the results back up.
+ */
+class SessionAnalysisTask extends RecursiveTask<SessionStats>
+{
+	// Each file is a few kilobytes, so smaller pieces aren't worth forking
+	private static final int FILES_PER_TASK = 8;
+
+	private final List<Path> files;
+	private final int from;
+	private final int to;
+
+	SessionAnalysisTask(List<Path> files)
+	{
+		this(files, 0, files.size());
+	}
+
+	private SessionAnalysisTask(List<Path> files, int from, int to)
+	{
+		this.files = files;
+		this.from = from;
+		this.to = to;
+	}
+
+	@Override
+	protected SessionStats compute()
+	{
+		if (to - from <= FILES_PER_TASK)
+		{
+			final SessionStats stats = new SessionStats();
+			for (int i = from; i < to; i++)
+			{
+				stats.add(files.get(i));
+			}
+			return stats;
+		}
+
+		final int middle = (from + to) >>> 1;
+		final SessionAnalysisTask left = new SessionAnalysisTask(files, from, middle);
+		left.fork();
+		final SessionStats right = new SessionAnalysisTask(files, middle, to).compute();
+		return left.join().merge(right);
+	}
+}
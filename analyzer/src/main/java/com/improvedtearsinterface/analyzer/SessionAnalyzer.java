@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface.analyzer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Reads the session timelines saved by the plugin's "Record session timelines" option and
+ * prints the score distribution, time spent per collecting state and tears lost on green veins.
+ * <p>
+ * Usage: {@code SessionAnalyzer [--threads N] [file or directory...]}. Directories are searched
+ * for session files, and the plugin's sessions directory is used when none are given.
+ */
+public class SessionAnalyzer
+{
+	private static final Path DEFAULT_DIR = Paths.get(System.getProperty("user.home"),
+		".runelite", "improved-tears", "sessions");
+
+	public static void main(String[] args) throws IOException
+	{
+		int threads = Runtime.getRuntime().availableProcessors();
+		final List<Path> roots = new ArrayList<>();
+		for (int i = 0; i < args.length; i++)
+		{
+			if (args[i].equals("--threads") && i + 1 < args.length)
+			{
+				threads = Math.max(1, Integer.parseInt(args[++i]));
+			}
+			else
+			{
+				roots.add(Paths.get(args[i]));
+			}
+		}
+		if (roots.isEmpty())
+		{
+			roots.add(DEFAULT_DIR);
+		}
+
+		final List<Path> files = new ArrayList<>();
+		for (Path root : roots)
+		{
+			if (Files.isDirectory(root))
+			{
+				try (Stream<Path> walk = Files.walk(root))
+				{
+					files.addAll(walk
+						.filter(path -> path.getFileName().toString().endsWith(SessionFile.FILE_EXTENSION))
+						.filter(Files::isRegularFile)
+						.sorted()
+						.collect(Collectors.toList()));
+				}
+			}
+			else if (Files.isRegularFile(root))
+			{
+				files.add(root);
+			}
+			else
+			{
+				System.err.println("Skipping " + root + ": not found");
+			}
+		}
+
+		final long start = System.nanoTime();
+		final ForkJoinPool pool = new ForkJoinPool(threads);
+		final SessionStats stats;
+		try
+		{
+			stats = pool.invoke(new SessionAnalysisTask(files));
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+		final long elapsed = System.nanoTime() - start;
+
+		stats.print(System.out);
+		System.out.println();
+		System.out.printf("Analyzed %d files on %d threads in %.1f ms%n", files.size(), threads, elapsed / 1e6);
+	}
+}
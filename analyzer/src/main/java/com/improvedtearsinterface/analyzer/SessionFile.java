@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface.analyzer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a session file written by the plugin's TearsSessionRecorder through a read-only memory mapping.
+ * <p>
+ * Files start with a 16 byte header: int {@link #MAGIC}, short {@link #VERSION}, short record size,
+ * int number of records, int max ticks of the game. Records follow, each starting with int tick count,
+ * short displayed ticks left, short tears collected, byte tears diff and byte collecting state ordinal.
+ * <p>
+ * From version 2 the state byte has {@link #COUNTED_FLAG} set on the ticks the plugin counted towards
+ * its statistics. Version 1 files don't say, so for them the ticks with time left on the timer are taken
+ * instead, which leaves out the first and last counted tick of a game.
+ * <p>
+ * The record count is updated as the game goes, so a game cut short by a logout or crash leaves a
+ * valid file whose last record still has ticks left. The score is only known once the timer ran out.
+ */
+class SessionFile
+{
+	static final int MAGIC = 0x544F4753;
+	static final short VERSION = 2;
+	static final int COUNTED_FLAG = 0x80;
+	static final String FILE_EXTENSION = ".togs";
+
+	private static final int HEADER_SIZE = 16;
+	private static final int MIN_RECORD_SIZE = 10;
+
+	interface Visitor
+	{
+		void begin(int maxTicks);
+
+		/**
+		 * @param counted whether the plugin counted the tick towards the game's statistics
+		 */
+		void record(int tick, int displayedTicksLeft, int tearsCollected, int tearsDiff, int state, boolean counted);
+
+		void end();
+	}
+
+	/**
+	 * Hands the game's max ticks and then every record of the file to the visitor.
+	 *
+	 * @return false without visiting anything if the game didn't run until the timer ran out
+	 * @throws IOException if the file can't be read or isn't a session file
+	 */
+	static boolean read(Path path, Visitor visitor) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+		{
+			if (channel.size() < HEADER_SIZE)
+			{
+				throw new IOException("Too short to be a session file");
+			}
+
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			final int version = buffer.getShort(4);
+			if (buffer.getInt(0) != MAGIC || version < 1 || version > VERSION)
+			{
+				throw new IOException("Not a session file");
+			}
+
+			final int recordSize = buffer.getShort(6);
+			final int count = buffer.getInt(8);
+			final int maxTicks = buffer.getInt(12);
+			if (recordSize < MIN_RECORD_SIZE || count < 0 || HEADER_SIZE + (long) recordSize * count > buffer.capacity())
+			{
+				throw new IOException("Corrupt session file header");
+			}
+
+			if (count == 0 || buffer.getShort(HEADER_SIZE + recordSize * (count - 1) + 4) != 0)
+			{
+				return false;
+			}
+
+			visitor.begin(maxTicks);
+			read(buffer, version, recordSize, count, maxTicks, visitor);
+			visitor.end();
+			return true;
+		}
+	}
+
+	private static void read(ByteBuffer buffer, int version, int recordSize, int count, int maxTicks, Visitor visitor)
+	{
+		int position = HEADER_SIZE;
+		for (int i = 0; i < count; i++)
+		{
+			final int displayedTicksLeft = buffer.getShort(position + 4);
+			final int state = buffer.get(position + 9) & 0xFF;
+			final boolean counted = version == 1
+				? displayedTicksLeft > 0 && displayedTicksLeft < maxTicks
+				: (state & COUNTED_FLAG) != 0;
+			visitor.record(buffer.getInt(position), displayedTicksLeft, buffer.getShort(position + 6),
+				buffer.get(position + 8), state & ~COUNTED_FLAG, counted);
+			position += recordSize;
+		}
+	}
+}
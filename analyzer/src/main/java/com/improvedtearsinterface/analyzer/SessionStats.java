@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface.analyzer;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+
+/**
+ * Aggregate statistics over any number of sessions. Instances are filled by a single thread
+ * each and then merged together.
+ */
+class SessionStats implements SessionFile.Visitor
+{
+	// In the plugin's TearCollectingState order
+	private static final String[] STATE_NAMES = {"Not collecting", "Empty vein", "Green vein", "Blue vein"};
+	private static final int GREEN_VEIN = 2;
+
+	// Scores above this are counted as this in the distribution
+	private static final int MAX_SCORE = 1023;
+	private static final int BUCKET_SIZE = 25;
+
+	private int sessions = 0;
+	private int unreadable = 0;
+	// Games cut short, whose last recorded score isn't their final one
+	private int unfinished = 0;
+	private final long[] scoreCounts = new long[MAX_SCORE + 1];
+	private long scoreTotal = 0;
+	private double scoreSquares = 0;
+	private int minScore = Integer.MAX_VALUE;
+	private int maxScore = 0;
+
+	private final long[] stateTicks = new long[STATE_NAMES.length];
+	private long tearsGained = 0;
+	private long tearsLost = 0;
+	private long sessionsWithLosses = 0;
+
+	// Session being read
+	private int score;
+	private int records;
+	private int lost;
+
+	void add(Path path)
+	{
+		try
+		{
+			if (!SessionFile.read(path, this))
+			{
+				unfinished++;
+			}
+		}
+		catch (IOException e)
+		{
+			unreadable++;
+		}
+	}
+
+	@Override
+	public void begin(int maxTicks)
+	{
+		score = 0;
+		records = 0;
+		lost = 0;
+	}
+
+	@Override
+	public void record(int tick, int displayedTicksLeft, int tearsCollected, int tearsDiff, int state, boolean counted)
+	{
+		records++;
+		score = tearsCollected;
+
+		// Same ticks as the plugin's own statistics, skipping the countdown before the game and the ticks after it
+		if (!counted || state >= stateTicks.length)
+		{
+			return;
+		}
+
+		stateTicks[state]++;
+		if (tearsDiff > 0)
+		{
+			tearsGained += tearsDiff;
+		}
+		else if (tearsDiff < 0 && state == GREEN_VEIN)
+		{
+			lost -= tearsDiff;
+		}
+	}
+
+	@Override
+	public void end()
+	{
+		if (records == 0)
+		{
+			return;
+		}
+
+		sessions++;
+		scoreCounts[Math.min(Math.max(score, 0), MAX_SCORE)]++;
+		scoreTotal += score;
+		scoreSquares += (double) score * score;
+		minScore = Math.min(minScore, score);
+		maxScore = Math.max(maxScore, score);
+		tearsLost += lost;
+		if (lost > 0)
+		{
+			sessionsWithLosses++;
+		}
+	}
+
+	SessionStats merge(SessionStats other)
+	{
+		sessions += other.sessions;
+		unreadable += other.unreadable;
+		unfinished += other.unfinished;
+		for (int i = 0; i < scoreCounts.length; i++)
+		{
+			scoreCounts[i] += other.scoreCounts[i];
+		}
+		scoreTotal += other.scoreTotal;
+		scoreSquares += other.scoreSquares;
+		minScore = Math.min(minScore, other.minScore);
+		maxScore = Math.max(maxScore, other.maxScore);
+		for (int i = 0; i < stateTicks.length; i++)
+		{
+			stateTicks[i] += other.stateTicks[i];
+		}
+		tearsGained += other.tearsGained;
+		tearsLost += other.tearsLost;
+		sessionsWithLosses += other.sessionsWithLosses;
+		return this;
+	}
+
+	int getSessions()
+	{
+		return sessions;
+	}
+
+	int getUnreadable()
+	{
+		return unreadable;
+	}
+
+	int getUnfinished()
+	{
+		return unfinished;
+	}
+
+	int getMinScore()
+	{
+		return minScore;
+	}
+
+	int getMaxScore()
+	{
+		return maxScore;
+	}
+
+	long getStateTicks(int state)
+	{
+		return stateTicks[state];
+	}
+
+	long getTearsGained()
+	{
+		return tearsGained;
+	}
+
+	long getTearsLost()
+	{
+		return tearsLost;
+	}
+
+	long getSessionsWithLosses()
+	{
+		return sessionsWithLosses;
+	}
+
+	int getPercentile(double percentile)
+	{
+		final long target = (long) Math.ceil(percentile * sessions);
+		long seen = 0;
+		for (int score = 0; score < scoreCounts.length; score++)
+		{
+			seen += scoreCounts[score];
+			if (seen >= target && seen > 0)
+			{
+				return score;
+			}
+		}
+		return MAX_SCORE;
+	}
+
+	void print(PrintStream out)
+	{
+		out.printf("Sessions: %d (%d unreadable and %d unfinished files skipped)%n", sessions, unreadable, unfinished);
+		if (sessions == 0)
+		{
+			return;
+		}
+
+		final double mean = scoreTotal / (double) sessions;
+		final double stdDev = sessions < 2 ? 0
+			: Math.sqrt(Math.max(0, (scoreSquares - sessions * mean * mean) / (sessions - 1)));
+		out.println();
+		out.println("Score");
+		out.printf("  mean %.1f, std dev %.1f, min %d, max %d%n", mean, stdDev, minScore, maxScore);
+		out.printf("  p10 %d, p25 %d, median %d, p75 %d, p90 %d%n", getPercentile(0.1), getPercentile(0.25),
+			getPercentile(0.5), getPercentile(0.75), getPercentile(0.9));
+		out.println();
+		out.println("Score distribution");
+		for (int bucket = minScore / BUCKET_SIZE; bucket <= Math.min(maxScore, MAX_SCORE) / BUCKET_SIZE; bucket++)
+		{
+			long count = 0;
+			for (int score = bucket * BUCKET_SIZE; score < (bucket + 1) * BUCKET_SIZE && score < scoreCounts.length; score++)
+			{
+				count += scoreCounts[score];
+			}
+			out.printf("  %4d-%-4d %6d %s%n", bucket * BUCKET_SIZE, (bucket + 1) * BUCKET_SIZE - 1, count,
+				bar(count, sessions));
+		}
+
+		long totalTicks = 0;
+		for (long ticks : stateTicks)
+		{
+			totalTicks += ticks;
+		}
+		out.println();
+		out.println("Time per collecting state");
+		for (int i = 0; i < STATE_NAMES.length; i++)
+		{
+			out.printf("  %-15s %9d ticks %5.1f%%%n", STATE_NAMES[i], stateTicks[i],
+				totalTicks == 0 ? 0 : stateTicks[i] * 100.0 / totalTicks);
+		}
+
+		out.println();
+		out.println("Green veins");
+		out.printf("  %d tears lost, %.2f per game, %.3f per tick on green%n", tearsLost, tearsLost / (double) sessions,
+			stateTicks[GREEN_VEIN] == 0 ? 0 : tearsLost / (double) stateTicks[GREEN_VEIN]);
+		out.printf("  %.1f%% of games lost tears, %.1f%% of all tears changed were losses%n",
+			sessionsWithLosses * 100.0 / sessions,
+			tearsGained + tearsLost == 0 ? 0 : tearsLost * 100.0 / (tearsGained + tearsLost));
+	}
+
+	private static String bar(long count, long total)
+	{
+		final StringBuilder sb = new StringBuilder();
+		for (long i = Math.round(count * 50.0 / total); i > 0; i--)
+		{
+			sb.append('#');
+		}
+		return sb.toString();
+	}
+}
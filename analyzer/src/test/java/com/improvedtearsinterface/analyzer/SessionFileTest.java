@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface.analyzer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SessionFileTest
+{
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void readsEveryRecord() throws IOException
+	{
+		final Path path = new SessionFixture(3)
+			.record(3, 0, 0, SessionFixture.NOT_COLLECTING, false)
+			.record(2, 1, 1, SessionFixture.BLUE_VEIN, true)
+			.record(1, 0, -1, SessionFixture.GREEN_VEIN, true)
+			.record(0, 0, 0, SessionFixture.NOT_COLLECTING, false)
+			.write(folder.getRoot(), "game");
+
+		final RecordingVisitor visitor = new RecordingVisitor();
+		assertTrue(SessionFile.read(path, visitor));
+
+		assertEquals(3, visitor.maxTicks);
+		assertEquals(4, visitor.records.size());
+		assertEquals("100 3 0 0 0 false", visitor.records.get(0));
+		assertEquals("101 2 1 1 3 true", visitor.records.get(1));
+		assertEquals("102 1 0 -1 2 true", visitor.records.get(2));
+		assertTrue(visitor.ended);
+	}
+
+	@Test
+	public void takesTicksWithTimeLeftAsCountedInVersionOneFiles() throws IOException
+	{
+		final Path path = new SessionFixture(3)
+			.record(3, 0, 0, SessionFixture.BLUE_VEIN, true)
+			.record(2, 1, 1, SessionFixture.BLUE_VEIN, true)
+			.record(0, 1, 0, SessionFixture.BLUE_VEIN, true)
+			.version(1)
+			.write(folder.getRoot(), "game");
+
+		final RecordingVisitor visitor = new RecordingVisitor();
+		assertTrue(SessionFile.read(path, visitor));
+		assertEquals("100 3 0 0 3 false", visitor.records.get(0));
+		assertEquals("101 2 1 1 3 true", visitor.records.get(1));
+		assertEquals("102 0 1 0 3 false", visitor.records.get(2));
+	}
+
+	@Test
+	public void skipsGamesThatDidNotRunOut() throws IOException
+	{
+		// Logged out with 18 ticks left, the score of the last record is not the final one
+		final Path path = SessionFixture.game(20, 10).count(3).write(folder.getRoot(), "game");
+
+		final RecordingVisitor visitor = new RecordingVisitor();
+		assertFalse(SessionFile.read(path, visitor));
+		assertEquals(0, visitor.records.size());
+		assertFalse(visitor.ended);
+	}
+
+	@Test
+	public void skipsEmptyGames() throws IOException
+	{
+		final Path path = new SessionFixture(20).write(folder.getRoot(), "game");
+
+		assertFalse(SessionFile.read(path, new RecordingVisitor()));
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsOtherFiles() throws IOException
+	{
+		final Path path = folder.newFile("game" + SessionFile.FILE_EXTENSION).toPath();
+		Files.write(path, new byte[64]);
+
+		SessionFile.read(path, new RecordingVisitor());
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsCountsPastTheEndOfTheFile() throws IOException
+	{
+		final Path path = SessionFixture.game(20, 10).count(100000).write(folder.getRoot(), "game");
+
+		SessionFile.read(path, new RecordingVisitor());
+	}
+
+	private static class RecordingVisitor implements SessionFile.Visitor
+	{
+		private int maxTicks;
+		private final List<String> records = new ArrayList<>();
+		private boolean ended;
+
+		@Override
+		public void begin(int maxTicks)
+		{
+			this.maxTicks = maxTicks;
+		}
+
+		@Override
+		public void record(int tick, int displayedTicksLeft, int tearsCollected, int tearsDiff, int state, boolean counted)
+		{
+			records.add(tick + " " + displayedTicksLeft + " " + tearsCollected + " " + tearsDiff + " " + state + " " + counted);
+		}
+
+		@Override
+		public void end()
+		{
+			ended = true;
+		}
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface.analyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Builds session files the way the plugin's TearsSessionRecorder writes them.
+ */
+class SessionFixture
+{
+	static final int NOT_COLLECTING = 0;
+	static final int GREEN_VEIN = 2;
+	static final int BLUE_VEIN = 3;
+
+	private static final int HEADER_SIZE = 16;
+	private static final int RECORD_SIZE = 10;
+	private static final int MAX_RECORDS = 256;
+
+	private final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + RECORD_SIZE * MAX_RECORDS);
+	private int count = 0;
+	private int tick = 100;
+
+	SessionFixture(int maxTicks)
+	{
+		buffer.putInt(0, SessionFile.MAGIC);
+		buffer.putShort(4, SessionFile.VERSION);
+		buffer.putShort(6, (short) RECORD_SIZE);
+		buffer.putInt(12, maxTicks);
+	}
+
+	/**
+	 * A game that runs out from maxTicks, gaining a tear on blue veins every tick until it has the score.
+	 * The ticks with time left on the timer are the counted ones.
+	 */
+	static SessionFixture game(int maxTicks, int score)
+	{
+		final SessionFixture session = new SessionFixture(maxTicks);
+		int tears = 0;
+		for (int ticksLeft = maxTicks; ticksLeft >= 0; ticksLeft--)
+		{
+			final int diff = ticksLeft < maxTicks && ticksLeft > 0 && tears < score ? 1 : 0;
+			tears += diff;
+			final boolean counted = ticksLeft < maxTicks && ticksLeft > 0;
+			session.record(ticksLeft, tears, diff, counted ? BLUE_VEIN : NOT_COLLECTING, counted);
+		}
+		return session;
+	}
+
+	SessionFixture record(int displayedTicksLeft, int tearsCollected, int tearsDiff, int state, boolean counted)
+	{
+		final int position = HEADER_SIZE + count * RECORD_SIZE;
+		buffer.putInt(position, tick++);
+		buffer.putShort(position + 4, (short) displayedTicksLeft);
+		buffer.putShort(position + 6, (short) tearsCollected);
+		buffer.put(position + 8, (byte) tearsDiff);
+		buffer.put(position + 9, (byte) (state | (counted ? SessionFile.COUNTED_FLAG : 0)));
+		count++;
+		buffer.putInt(8, count);
+		return this;
+	}
+
+	/**
+	 * Overwrites the file version of the header.
+	 */
+	SessionFixture version(int version)
+	{
+		buffer.putShort(4, (short) version);
+		return this;
+	}
+
+	/**
+	 * Overwrites the record count of the header.
+	 */
+	SessionFixture count(int count)
+	{
+		buffer.putInt(8, count);
+		return this;
+	}
+
+	Path write(File dir, String name) throws IOException
+	{
+		final Path path = new File(dir, name + SessionFile.FILE_EXTENSION).toPath();
+		Files.write(path, buffer.array());
+		return path;
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface.analyzer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import static org.junit.Assert.assertEquals;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SessionStatsTest
+{
+	private static final int MAX_TICKS = 20;
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void aggregatesScoresAcrossFiles() throws IOException
+	{
+		final SessionStats stats = new SessionStats();
+		stats.add(SessionFixture.game(MAX_TICKS, 5).write(folder.getRoot(), "a"));
+		stats.add(SessionFixture.game(MAX_TICKS, 10).write(folder.getRoot(), "b"));
+		stats.add(SessionFixture.game(MAX_TICKS, 15).write(folder.getRoot(), "c"));
+
+		assertEquals(3, stats.getSessions());
+		assertEquals(5, stats.getMinScore());
+		assertEquals(15, stats.getMaxScore());
+		assertEquals(10, stats.getPercentile(0.5));
+		assertEquals(30, stats.getTearsGained());
+		// Only the ticks with time left on the timer count
+		assertEquals(3 * (MAX_TICKS - 1), stats.getStateTicks(SessionFixture.BLUE_VEIN));
+		assertEquals(0, stats.getStateTicks(SessionFixture.NOT_COLLECTING));
+	}
+
+	@Test
+	public void countsLossesOnlyOnGreenVeins() throws IOException
+	{
+		final SessionStats stats = new SessionStats();
+		stats.add(new SessionFixture(3)
+			.record(3, 0, 0, SessionFixture.NOT_COLLECTING, false)
+			.record(2, 2, 2, SessionFixture.BLUE_VEIN, true)
+			.record(1, 1, -1, SessionFixture.GREEN_VEIN, true)
+			.record(0, 1, 0, SessionFixture.NOT_COLLECTING, false)
+			.write(folder.getRoot(), "lost"));
+		stats.add(new SessionFixture(3)
+			.record(3, 0, 0, SessionFixture.NOT_COLLECTING, false)
+			.record(2, 2, 2, SessionFixture.BLUE_VEIN, true)
+			.record(1, 1, -1, SessionFixture.BLUE_VEIN, true)
+			.record(0, 1, 0, SessionFixture.NOT_COLLECTING, false)
+			.write(folder.getRoot(), "kept"));
+
+		assertEquals(2, stats.getSessions());
+		assertEquals(1, stats.getTearsLost());
+		assertEquals(1, stats.getSessionsWithLosses());
+		assertEquals(1, stats.getMaxScore());
+	}
+
+	@Test
+	public void countsTheSameTicksAsThePlugin() throws IOException
+	{
+		// As the plugin records a 10 tick game: the countdown at full time, the first counted tick still
+		// at full time, one counted tick at 0 from counting down before the varbit got there, and the
+		// tick the game ended on, which isn't counted
+		final SessionFixture game = new SessionFixture(10);
+		for (int i = 0; i < 3; i++)
+		{
+			game.record(10, 0, 0, SessionFixture.NOT_COLLECTING, false);
+		}
+		for (int left = 10; left > 0; left--)
+		{
+			game.record(left, 11 - left, 1, SessionFixture.BLUE_VEIN, true);
+		}
+		game.record(0, 9, -1, SessionFixture.GREEN_VEIN, true);
+		game.record(0, 9, 0, SessionFixture.NOT_COLLECTING, false);
+
+		final SessionStats stats = new SessionStats();
+		stats.add(game.write(folder.getRoot(), "game"));
+
+		// What the plugin's statistics showed for this game: 11 ticks, 10 on blue and 1 on green
+		assertEquals(10, stats.getStateTicks(SessionFixture.BLUE_VEIN));
+		assertEquals(1, stats.getStateTicks(SessionFixture.GREEN_VEIN));
+		assertEquals(0, stats.getStateTicks(SessionFixture.NOT_COLLECTING));
+		assertEquals(10, stats.getTearsGained());
+		assertEquals(1, stats.getTearsLost());
+		assertEquals(9, stats.getMaxScore());
+	}
+
+	@Test
+	public void skipsUnfinishedAndUnreadableFiles() throws IOException
+	{
+		final Path garbage = folder.newFile("garbage" + SessionFile.FILE_EXTENSION).toPath();
+		Files.write(garbage, new byte[]{1, 2, 3});
+
+		final SessionStats stats = new SessionStats();
+		stats.add(SessionFixture.game(MAX_TICKS, 12).write(folder.getRoot(), "finished"));
+		stats.add(SessionFixture.game(MAX_TICKS, 12).count(MAX_TICKS - 5).write(folder.getRoot(), "unfinished"));
+		stats.add(garbage);
+
+		assertEquals(1, stats.getSessions());
+		assertEquals(1, stats.getUnfinished());
+		assertEquals(1, stats.getUnreadable());
+		assertEquals(12, stats.getMinScore());
+		assertEquals(MAX_TICKS - 1, stats.getStateTicks(SessionFixture.BLUE_VEIN));
+	}
+
+	@Test
+	public void parallelAnalysisMatchesSequential() throws IOException
+	{
+		final List<Path> files = new ArrayList<>();
+		for (int i = 0; i < 50; i++)
+		{
+			final SessionFixture game = SessionFixture.game(MAX_TICKS, i % 19);
+			files.add((i % 10 == 9 ? game.count(4) : game).write(folder.getRoot(), "game" + i));
+		}
+
+		final SessionStats sequential = new SessionStats();
+		files.forEach(sequential::add);
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		final SessionStats parallel = pool.invoke(new SessionAnalysisTask(files));
+		pool.shutdown();
+
+		assertEquals(45, sequential.getSessions());
+		assertEquals(5, sequential.getUnfinished());
+		assertEquals(sequential.getSessions(), parallel.getSessions());
+		assertEquals(sequential.getUnfinished(), parallel.getUnfinished());
+		assertEquals(sequential.getMinScore(), parallel.getMinScore());
+		assertEquals(sequential.getMaxScore(), parallel.getMaxScore());
+		assertEquals(sequential.getPercentile(0.5), parallel.getPercentile(0.5));
+		assertEquals(sequential.getTearsGained(), parallel.getTearsGained());
+		assertEquals(sequential.getStateTicks(SessionFixture.BLUE_VEIN), parallel.getStateTicks(SessionFixture.BLUE_VEIN));
+	}
+}
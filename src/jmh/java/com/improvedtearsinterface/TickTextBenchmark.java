@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface;
+
+import com.improvedtearsinterface.engine.TearsEngine;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The ticks left text and colour, both precomputing them for a game and writing them every tick.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TickTextBenchmark
+{
+	private TearsWidgetWriter widgetWriter;
+	private int displayedTicksLeft = 0;
+	private int prepareCount = 0;
+
+	@Setup
+	public void setUp()
+	{
+		final PluginFixture fixture = new PluginFixture();
+		widgetWriter = fixture.get(TearsWidgetWriter.class);
+		widgetWriter.prepare(PluginFixture.MAX_TICKS);
+		widgetWriter.isLoaded();
+	}
+
+	@Benchmark
+	public void writeTicksLeft()
+	{
+		displayedTicksLeft = displayedTicksLeft == 0 ? PluginFixture.MAX_TICKS : displayedTicksLeft - 1;
+		widgetWriter.writeTicksLeft(displayedTicksLeft, PluginFixture.MAX_TICKS,
+			TearsEngine.getTicksLeftColor(displayedTicksLeft, PluginFixture.MAX_TICKS, (displayedTicksLeft & 1) != 0));
+	}
+
+	@Benchmark
+	public void prepare()
+	{
+		// Alternate so the precomputed tables are actually rebuilt every time
+		prepareCount++;
+		widgetWriter.prepare(PluginFixture.MAX_TICKS + (prepareCount & 1));
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface.engine;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One tick of the engine on its own, without a client or the plugin around it.
+ * Games are scripted up front and played over and over, the engine being reset after each.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TearsEngineBenchmark
+{
+	private static final int MAX_TICKS = 100;
+	// The varbit goes down in steps, the engine counts down in between
+	private static final int VARBIT_STEP = 10;
+	private static final int START_TICKS = TearsEngine.TICKS_FROM_JUNAS_TAIL + 1;
+	private static final int END_TICKS = 3;
+	private static final int GAME_TICKS = START_TICKS + MAX_TICKS + END_TICKS;
+
+	private final TearsEngine engine = new TearsEngine();
+	private final int[] varbitTicksLeft = new int[GAME_TICKS];
+	private final int[] varbitTears = new int[GAME_TICKS];
+	private final int[] states = new int[GAME_TICKS];
+	private final int[] areas = new int[GAME_TICKS];
+	private int tick = 0;
+
+	@Setup
+	public void setUp()
+	{
+		final Random random = new Random(0);
+		int tears = 0;
+		for (int i = 0; i < GAME_TICKS; i++)
+		{
+			final int played = i - START_TICKS;
+			varbitTicksLeft[i] = played < 0 ? MAX_TICKS
+				: played < MAX_TICKS ? MAX_TICKS - played / VARBIT_STEP * VARBIT_STEP : 0;
+			states[i] = random.nextInt(4);
+			if (played >= 0 && played < MAX_TICKS)
+			{
+				if (states[i] == TearsEngine.STATE_BLUE_VEIN)
+				{
+					tears++;
+				}
+				else if (states[i] == TearsEngine.STATE_GREEN_VEIN && tears > 0)
+				{
+					tears--;
+				}
+			}
+			varbitTears[i] = tears;
+			areas[i] = i == 0 ? TearsEngine.AREA_ENTRANCE : i == GAME_TICKS - 1 ? TearsEngine.AREA_OUTSIDE : TearsEngine.AREA_CAVE;
+		}
+	}
+
+	@Benchmark
+	public int tick()
+	{
+		// Wrapped by hand, a plain counter would overflow on long runs
+		final int i = tick;
+		tick = i + 1 == GAME_TICKS ? 0 : i + 1;
+		if (engine.advanceTimer(varbitTicksLeft[i], areas[i], 1) != TearsEngine.TIMER_IDLE
+			&& engine.updateTears(i, varbitTears[i], states[i], areas[i], true))
+		{
+			engine.reset();
+		}
+		return engine.getTicksLeftColor() ^ engine.getMessageColor();
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface;
+
+/**
+ * Fixed-capacity ring buffer of tear deltas and the time they were recorded at.
+ * Entries are kept in primitive arrays so adding and reading never allocates.
+ */
+class DeltaRingBuffer
+{
+	private final int[] deltas;
+	private final long[] times;
+
+	// Index of the oldest entry
+	private int head = 0;
+	private int size = 0;
+	// Bumped on every change, so readers can tell whether copies they made are still current
+	private int version = 0;
+
+	DeltaRingBuffer(int capacity)
+	{
+		if (capacity <= 0)
+		{
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+		deltas = new int[capacity];
+		times = new long[capacity];
+	}
+
+	/**
+	 * Adds an entry, evicting the oldest one if the buffer is full.
+	 */
+	void add(int delta, long time)
+	{
+		final int capacity = deltas.length;
+		int index;
+		if (size < capacity)
+		{
+			index = head + size;
+			if (index >= capacity)
+			{
+				index -= capacity;
+			}
+			size++;
+		}
+		else
+		{
+			index = head;
+			head = next(head);
+		}
+		deltas[index] = delta;
+		times[index] = time;
+		version++;
+	}
+
+	/**
+	 * Drops every entry recorded more than maxAge before now.
+	 */
+	void expire(long now, long maxAge)
+	{
+		while (size > 0 && now - times[head] > maxAge)
+		{
+			head = next(head);
+			size--;
+			version++;
+		}
+	}
+
+	void clear()
+	{
+		head = 0;
+		size = 0;
+		version++;
+	}
+
+	int getVersion()
+	{
+		return version;
+	}
+
+	int size()
+	{
+		return size;
+	}
+
+	boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	int capacity()
+	{
+		return deltas.length;
+	}
+
+	/**
+	 * Gets the delta of the i-th entry, 0 being the oldest.
+	 */
+	int getDelta(int i)
+	{
+		return deltas[index(i)];
+	}
+
+	/**
+	 * Gets the time of the i-th entry, 0 being the oldest.
+	 */
+	long getTime(int i)
+	{
+		return times[index(i)];
+	}
+
+	private int index(int i)
+	{
+		if (i < 0 || i >= size)
+		{
+			throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+		}
+		int index = head + i;
+		return index >= deltas.length ? index - deltas.length : index;
+	}
+
+	private int next(int index)
+	{
+		return index + 1 == deltas.length ? 0 : index + 1;
+	}
+}
@@ -30,8 +30,9 @@ package com.improvedtearsinterface;
 import net.runelite.client.config.Config;
 import net.runelite.client.config.ConfigGroup;
 import net.runelite.client.config.ConfigItem;
+import net.runelite.client.config.Range;
 
-@ConfigGroup("improvedtearsinterface")
+@ConfigGroup(ImprovedTearsInterfacePlugin.CONFIG_GROUP)
 public interface ImprovedTearsInterfaceConfig extends Config
 {
 	@ConfigItem(
@@ -55,4 +56,188 @@ public interface ImprovedTearsInterfaceConfig extends Config
 	{
 		return true;
 	}
+
+	@ConfigItem(
+		keyName = "showPerformanceStats",
+		name = "Show performance stats",
+		description = "Measures how long the plugin takes every tick and frame and shows it in an overlay, for debugging",
+		position = 3
+	)
+	default boolean showPerformanceStats()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		keyName = "recordInputs",
+		name = "Record minigame inputs",
+		description = "Records what the plugin sees while in the cave to .runelite/improved-tears/recordings, so sessions can be replayed for debugging",
+		position = 4
+	)
+	default boolean recordInputs()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		keyName = "recordSessions",
+		name = "Record session timelines",
+		description = "Saves the timer, score and collecting state of every tick of a game to .runelite/improved-tears/sessions",
+		position = 5
+	)
+	default boolean recordSessions()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		keyName = "trackHistory",
+		name = "Track game history",
+		description = "Keeps a history of your completed games and shows your best and average scores in the chat after each game",
+		position = 6
+	)
+	default boolean trackHistory()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		keyName = "showProjection",
+		name = "Show score projection",
+		description = "Shows an overlay during the minigame with the projected final score and your recent collection rate",
+		position = 7
+	)
+	default boolean showProjection()
+	{
+		return true;
+	}
+
+	@ConfigItem(
+		keyName = "showNextBlue",
+		name = "Predict next blue vein",
+		description = "Shows where and when the next blue vein is expected to appear, learned from how the veins have been changing",
+		position = 8
+	)
+	default boolean showNextBlue()
+	{
+		return true;
+	}
+
+	@ConfigItem(
+		keyName = "showHeatmap",
+		name = "Show tile heatmap",
+		description = "Colors the tiles of the cave by how many tears you have collected per tick while standing on them",
+		position = 9
+	)
+	default boolean showHeatmap()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		keyName = "showRouteAdvice",
+		name = "Suggest where to go",
+		description = "Suggests which vein to collect from next, based on how long the blue veins should last and how far away they are",
+		position = 10
+	)
+	default boolean showRouteAdvice()
+	{
+		return true;
+	}
+
+	@ConfigItem(
+		keyName = "highlightVeins",
+		name = "Highlight veins",
+		description = "Outlines every blue vein in the cave in blue and every green vein in red",
+		position = 11
+	)
+	default boolean highlightVeins()
+	{
+		return true;
+	}
+
+	@ConfigItem(
+		keyName = "smoothCountdown",
+		name = "Smooth countdown",
+		description = "Shows the time left in seconds next to the tick timer, counting down smoothly between ticks",
+		position = 12
+	)
+	default boolean smoothCountdown()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		keyName = "compensateLateTicks",
+		name = "Compensate for lag",
+		description = "When ticks arrive late because of lag, counts down the timer by the ticks that were missed instead of just one",
+		position = 13
+	)
+	default boolean compensateLateTicks()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		keyName = "exportMetrics",
+		name = "Export metrics",
+		description = "Writes game and plugin timing counters in the Prometheus text format to .runelite/improved-tears/metrics every 15 seconds",
+		position = 14
+	)
+	default boolean exportMetrics()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		keyName = "showReactionSummary",
+		name = "Show reaction times",
+		description = "After each game, shows in the chat how many ticks it took you to react when your vein stopped being blue",
+		position = 15
+	)
+	default boolean showReactionSummary()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		keyName = "degradeUnderLoad",
+		name = "Reduce work under load",
+		description = "When the plugin keeps going over its tick budget, turns off vein predictions, route advice and the heatmap, then flashing text. When the +1/-1 animation goes over its frame budget, turns it off. Work comes back once there is time to spare again",
+		position = 16
+	)
+	default boolean degradeUnderLoad()
+	{
+		return true;
+	}
+
+	@Range(
+		min = 50,
+		max = 50000
+	)
+	@ConfigItem(
+		keyName = "tickBudget",
+		name = "Tick budget (us)",
+		description = "How many microseconds the plugin may spend on a game tick before it counts as over budget",
+		position = 17
+	)
+	default int tickBudget()
+	{
+		return 1000;
+	}
+
+	@Range(
+		min = 20,
+		max = 50000
+	)
+	@ConfigItem(
+		keyName = "frameBudget",
+		name = "Frame budget (us)",
+		description = "How many microseconds the +1/-1 animation may spend on a frame before it counts as over budget",
+		position = 18
+	)
+	default int frameBudget()
+	{
+		return 250;
+	}
 }
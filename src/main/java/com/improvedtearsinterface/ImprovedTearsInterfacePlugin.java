@@ -27,27 +27,35 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 package com.improvedtearsinterface;
 
-import com.google.common.collect.EvictingQueue;
-import com.google.common.collect.ImmutableSet;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.inject.Provides;
+import com.improvedtearsinterface.engine.TearsEngine;
 import java.awt.Color;
-import java.time.Instant;
-import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.ChatMessageType;
 import net.runelite.api.Client;
 import net.runelite.api.DecorativeObject;
 import net.runelite.api.GameState;
-import net.runelite.api.ObjectID;
 import net.runelite.api.Player;
-import net.runelite.api.Tile;
-import net.runelite.api.coords.LocalPoint;
 import net.runelite.api.coords.WorldPoint;
+import net.runelite.api.events.DecorativeObjectDespawned;
+import net.runelite.api.events.DecorativeObjectSpawned;
 import net.runelite.api.events.GameStateChanged;
 import net.runelite.api.events.GameTick;
-import net.runelite.api.widgets.Widget;
+import net.runelite.api.events.VarbitChanged;
+import net.runelite.api.events.WidgetClosed;
+import net.runelite.api.events.WidgetLoaded;
+import net.runelite.client.callback.ClientThread;
+import net.runelite.client.chat.ChatColorType;
+import net.runelite.client.chat.ChatMessageBuilder;
+import net.runelite.client.chat.ChatMessageManager;
+import net.runelite.client.chat.QueuedMessage;
 import net.runelite.client.config.ConfigManager;
+import net.runelite.client.events.ConfigChanged;
+import net.runelite.client.eventbus.EventBus;
 import net.runelite.client.eventbus.Subscribe;
 import net.runelite.client.plugins.Plugin;
 import net.runelite.client.plugins.PluginDescriptor;
@@ -62,38 +70,28 @@ import net.runelite.client.util.ColorUtil;
 )
 public class ImprovedTearsInterfacePlugin extends Plugin
 {
+	static final String CONFIG_GROUP = "improvedtearsinterface";
+
 	private static final int VARBIT_TICKS_LEFT = 5099;
 	private static final int VARBIT_TEARS_COLLECTED = 455;
 	private static final int VARBIT_COLLECTING = 453;
 
-	private static final int TICKS_FROM_JUNAS_TAIL = 9;
-	private static final int TICKS_FOR_START_TIMER = 6;
+	private static final int DELTA_HISTORY_SIZE = 10;
+	private static final long DELTA_HISTORY_MAX_AGE = TimeUnit.MILLISECONDS.toNanos(TearsPlusMinusOverlay.DURATION);
+
+	private static final int TEARS_REGION_ID = 12948;
 
-	private static final int TEARS_WP_PLANE = 2;
-	private static final int TEARS_WP_MIN_X = 3251;
-	private static final int TEARS_WP_MAX_X = 3260;
-	private static final int TEARS_WP_MIN_Y = 9515;
-	private static final int TEARS_WP_MAX_Y = 9519;
+	static final int TEARS_WP_PLANE = 2;
+	static final int TEARS_WP_MIN_X = 3251;
+	static final int TEARS_WP_MAX_X = 3260;
+	static final int TEARS_WP_MIN_Y = 9515;
+	static final int TEARS_WP_MAX_Y = 9519;
 
 	static final int TEARS_WIDGET_GROUP_ID = 276;
 	static final int TEARS_WIDGET_CHILD_TIME_TEXT = 17;
 	static final int TEARS_WIDGET_CHILD_WATER_TEXT = 16;
 	static final int TEARS_WIDGET_CHILD_COUNT_TEXT = 19;
 
-	private static final int COLOR_YELLOW = 0xFFFF00;
-	private static final int COLOR_LIGHT_ORANGE = 0xFF9900;
-	private static final int COLOR_ORANGE = 0xFF6600;
-	private static final int COLOR_RED = 0xFF0000;
-	private static final int COLOR_LIGHT_BLUE = 0x00BBFF;
-	private static final int COLOR_BLUE = 0x0066FF;
-	private static final int COLOR_GREEN = 0x00FF00;
-	private static final int COLOR_DARK_GREEN = 0x00CC00;
-
-	private static final Set<Integer> NO_TEARS_IDS = ImmutableSet.of(ObjectID.ABSENCE_OF_TEARS, ObjectID.ABSENCE_OF_TEARS_6667);
-	private static final Set<Integer> BLUE_TEARS_IDS = ImmutableSet.of(ObjectID.BLUE_TEARS, ObjectID.BLUE_TEARS_6665);
-	private static final Set<Integer> GREEN_TEARS_IDS = ImmutableSet.of(ObjectID.GREEN_TEARS, ObjectID.GREEN_TEARS_6666);
-
-	private static final String TICK_LEFT_STRING = ColorUtil.wrapWithColorTag("Ticks Left:", Color.YELLOW) + " %d / %d";
 	private static final String NOT_COLLECTING_STRING = "Not Collecting";
 	private static final String EMPTY_VEIN_STRING = "Empty Tear Vein!";
 	private static final String BLUE_VEIN_STRING = ColorUtil.wrapWithColorTag("Collecting", Color.GREEN)
@@ -103,39 +101,126 @@ public class ImprovedTearsInterfacePlugin extends Plugin
 	private static final String MINIGAME_STARTING_STRING = "Get Ready!";
 	private static final String MINIGAME_STARTING_IN_SINGULAR_STRING = "Starting in: %d tick";
 	private static final String MINIGAME_STARTING_IN_PLURAL_STRING = "Starting in: %d ticks";
+	private static final String[] MINIGAME_STARTING_IN_STRINGS = new String[TearsEngine.TICKS_FOR_START_TIMER];
 	private static final String MINIGAME_ENDING_STRING = "Time Up!";
+	// Indexed by the engine's MESSAGE constants, starting in is looked up separately
+	private static final String[] MESSAGE_STRINGS = {MINIGAME_STARTING_STRING, null, MINIGAME_ENDING_STRING,
+		NOT_COLLECTING_STRING, EMPTY_VEIN_STRING, GREEN_VEIN_STRING, BLUE_VEIN_STRING};
+
+	static
+	{
+		for (int i = 1; i < TearsEngine.TICKS_FOR_START_TIMER; i++)
+		{
+			MINIGAME_STARTING_IN_STRINGS[i] = String.format(
+				i == 1 ? MINIGAME_STARTING_IN_SINGULAR_STRING : MINIGAME_STARTING_IN_PLURAL_STRING, i);
+		}
+	}
 
 	@Inject
 	private Client client;
 
 	@Inject
-	private ImprovedTearsInterfaceConfig config;
+	private ClientThread clientThread;
+
+	@Inject
+	private TearsConfigCache configCache;
 
 	@Inject
 	private TearsPlusMinusOverlay overlay;
 
+	@Inject
+	private TearsPerformanceOverlay performanceOverlay;
+
+	@Inject
+	private TearsInfoOverlay infoOverlay;
+
+	@Inject
+	private TearsHeatmapOverlay heatmapOverlay;
+
+	@Inject
+	private TearsVeinHighlightOverlay veinHighlightOverlay;
+
+	@Inject
+	private TearsCountdownOverlay countdownOverlay;
+
+	@Inject
+	private TearsPerformanceMonitor performanceMonitor;
+
+	@Inject
+	private TearsWatchdog watchdog;
+
 	@Inject
 	private OverlayManager overlayManager;
 
+	@Inject
+	private EventBus eventBus;
+
+	@Inject
+	private TearsRegionSubscriber regionSubscriber;
+
+	@Inject
+	private TearsWidgetWriter widgetWriter;
+
+	@Inject
+	private TearsVeinIndex veinIndex;
+
+	@Inject
+	private TearsVeinTracker veinTracker;
+
+	@Inject
+	private TearsRouteAdvisor routeAdvisor;
+
+	@Inject
+	private TearsClock clock;
+
+	@Inject
+	private TearsTickMonitor tickMonitor;
+
+	@Inject
+	private TearsInputRecorder inputRecorder;
+
+	@Inject
+	private TearsSessionRecorder sessionRecorder;
+
+	@Inject
+	private TearsStatistics statistics;
+
+	@Inject
+	private TearsReactionTracker reactionTracker;
+
+	@Inject
+	private TearsHistoryStore historyStore;
+
+	@Inject
+	private TearsMetricsExporter metricsExporter;
+
+	@Inject
+	private ChatMessageManager chatMessageManager;
+
+	// Timer, score and interface logic, fed from the client every tick
+	private final TearsEngine engine = new TearsEngine();
 	@Getter
-	private int maxTicks = 0;
-	@Getter
-	private int minigameStarting = 0;
-	@Getter
-	private boolean minigameEnding = false;
-	@Getter
-	private int ticksLeft = 0;
+	private TearCollectingState collectingState = TearCollectingState.NOT_COLLECTING;
 	@Getter
-	private int displayedTicksLeft = 0;
+	private final DeltaRingBuffer deltaBuffer = new DeltaRingBuffer(DELTA_HISTORY_SIZE);
 	@Getter
-	private int tearsCollected = 0;
+	private final TearsTileHeatmap gameHeatmap = new TearsTileHeatmap();
+	// Heatmap of all previous games of the account, handed over from the history store's thread
 	@Getter
-	private TearCollectingState collectingState = TearCollectingState.NOT_COLLECTING;
+	private volatile TearsTileHeatmap historyHeatmap = null;
+	private boolean historyHeatmapRequested = false;
+	// Name of the logged in player, once known
+	private String accountName = null;
+	// What overlays read, replaced as a whole after every tick
 	@Getter
-	private EvictingQueue<DeltaInstantPair> deltaInstantQueue = EvictingQueue.create(10);
+	private volatile TearsStateSnapshot state = TearsStateSnapshot.EMPTY;
 
-	private boolean turnedOnDuringMinigame = false;
-	private boolean inTearsMinigame = false;
+	private boolean inTearsRegion = false;
+
+	// Latest varbit values, kept up to date from VarbitChanged
+	private int varbitTicksLeft = 0;
+	private int varbitTearsCollected = 0;
+	private boolean varbitCollecting = false;
 
 	@Provides
 	ImprovedTearsInterfaceConfig provideConfig(ConfigManager configManager)
@@ -146,307 +231,586 @@ public class ImprovedTearsInterfacePlugin extends Plugin
 	@Override
 	protected void startUp() throws Exception
 	{
+		// The config may have been changed while the plugin was off
+		configCache.refresh();
 		reset();
-		if (isInTearsMinigameArea() && client.getVarbitValue(VARBIT_TICKS_LEFT) > 0)
+		applyConfig();
+		historyStore.startUp();
+		clientThread.invoke(() ->
 		{
-			turnedOnDuringMinigame = true;
-		}
-		overlayManager.add(overlay);
+			if (client.getGameState() == GameState.LOGGED_IN)
+			{
+				updateRegion();
+				if (inTearsRegion && isInTearsMinigameArea() && varbitTicksLeft > 0)
+				{
+					engine.setTurnedOnDuringMinigame();
+				}
+			}
+		});
 	}
 
 	@Override
 	protected void shutDown() throws Exception
 	{
 		// Reset interface
-		if (inTearsMinigame)
+		if (engine.isInMinigame())
 		{
-			Widget timeLeftWidget = client.getWidget(TEARS_WIDGET_GROUP_ID, TEARS_WIDGET_CHILD_TIME_TEXT);
-			if (timeLeftWidget != null)
-			{
-				timeLeftWidget.setText("Time Left");
-				timeLeftWidget.setTextColor(COLOR_YELLOW);
-			}
-			Widget waterTextWidget = client.getWidget(TEARS_WIDGET_GROUP_ID, TEARS_WIDGET_CHILD_WATER_TEXT);
-			if (waterTextWidget != null)
-			{
-				waterTextWidget.setText("Water Collected");
-				waterTextWidget.setTextColor(COLOR_YELLOW);
-			}
-			Widget tearsCountWidget = client.getWidget(TEARS_WIDGET_GROUP_ID, TEARS_WIDGET_CHILD_COUNT_TEXT);
-			if (tearsCountWidget != null)
-			{
-				tearsCountWidget.setTextColor(COLOR_YELLOW);
-			}
+			widgetWriter.restoreDefaults();
 		}
 
 		reset();
-		overlayManager.remove(overlay);
+		setInTearsRegion(false);
+		performanceMonitor.setEnabled(false);
+		metricsExporter.setEnabled(false);
+		historyStore.shutDown();
 	}
 
 	private void reset()
 	{
-		maxTicks = 0;
-		minigameStarting = 0;
-		minigameEnding = false;
-		ticksLeft = 0;
-		displayedTicksLeft = 0;
-		tearsCollected = 0;
-		inTearsMinigame = false;
-		turnedOnDuringMinigame = false;
+		if (engine.isMinigameEnding() && engine.getMaxTicks() > 0)
+		{
+			metricsExporter.recordSession(engine.getTearsCollected());
+			saveSession();
+			if (configCache.get().showReactionSummary() && reactionTracker.getReactions() > 0)
+			{
+				sendReactionSummary();
+			}
+		}
+
+		sessionRecorder.finish();
+		statistics.reset();
+		reactionTracker.reset();
+		gameHeatmap.clear();
+		engine.reset();
 		collectingState = TearCollectingState.NOT_COLLECTING;
-		deltaInstantQueue.clear();
+		deltaBuffer.clear();
+		routeAdvisor.clearTarget();
+		state = TearsStateSnapshot.EMPTY;
 	}
 
 	@Subscribe
-	public void onGameStateChanged(GameStateChanged event)
+	public void onConfigChanged(ConfigChanged event)
 	{
-		if (event.getGameState() == GameState.LOGIN_SCREEN)
+		if (event.getGroup().equals(CONFIG_GROUP))
 		{
-			reset();
+			configCache.refresh();
+			applyConfig();
+			if (inTearsRegion && configCache.get().recordInputs() != inputRecorder.isRecording())
+			{
+				clientThread.invoke(() -> setRecording(inTearsRegion && configCache.get().recordInputs()));
+			}
 		}
 	}
 
+	private void applyConfig()
+	{
+		final TearsConfigSnapshot config = configCache.get();
+		// The exported metrics include the timings, so they are measured when either needs them
+		performanceMonitor.setEnabled(config.showPerformanceStats() || config.exportMetrics());
+		metricsExporter.setEnabled(config.exportMetrics());
+		watchdog.configure(config.degradeUnderLoad(), config.tickBudget(), config.frameBudget());
+	}
+
 	@Subscribe
-	public void onGameTick(GameTick event)
+	public void onGameStateChanged(GameStateChanged event)
 	{
-		if (client.getGameState() != GameState.LOGGED_IN)
+		switch (event.getGameState())
 		{
-			return;
+			case LOGIN_SCREEN:
+				reset();
+				setInTearsRegion(false);
+				varbitTicksLeft = 0;
+				varbitTearsCollected = 0;
+				varbitCollecting = false;
+				historyHeatmap = null;
+				historyHeatmapRequested = false;
+				accountName = null;
+				break;
+			case LOADING:
+				// Spawn events for the new scene are fired during loading
+				veinIndex.clear();
+				veinTracker.clear();
+				break;
+			case LOGGED_IN:
+				updateRegion();
+				break;
 		}
+	}
 
-		if (turnedOnDuringMinigame)
+	private void updateRegion()
+	{
+		boolean inRegion = false;
+		final int[] regions = client.getMapRegions();
+		if (regions != null)
 		{
-			if (!isInTearsMinigameArea(false))
-			{
-				reset();
-			}
-			else
+			for (int region : regions)
 			{
-				return;
+				if (region == TEARS_REGION_ID)
+				{
+					inRegion = true;
+					break;
+				}
 			}
 		}
+		setInTearsRegion(inRegion);
+	}
 
-		int newTicksLeft = client.getVarbitValue(VARBIT_TICKS_LEFT);
-		if (newTicksLeft > 0 && isInTearsMinigameArea())
+	/**
+	 * Everything other than the game state listener only runs while the cave is loaded,
+	 * the per tick and per frame work is registered on the way in and removed on the way out.
+	 */
+	private void setInTearsRegion(boolean inRegion)
+	{
+		if (inRegion == inTearsRegion)
 		{
-			inTearsMinigame = true;
+			return;
+		}
 
-			// Going from 0 -> Starting amount
-			if (ticksLeft == 0)
+		inTearsRegion = inRegion;
+		if (inRegion)
+		{
+			// Events were not being listened to until now, so catch up on what was missed
+			updateVarbits();
+			tickMonitor.clear();
+			rebuildVeins();
+			routeAdvisor.rebuild();
+			widgetWriter.invalidate();
+			setRecording(configCache.get().recordInputs());
+			eventBus.register(regionSubscriber);
+			overlayManager.add(overlay);
+			overlayManager.add(performanceOverlay);
+			overlayManager.add(infoOverlay);
+			overlayManager.add(heatmapOverlay);
+			overlayManager.add(veinHighlightOverlay);
+			overlayManager.add(countdownOverlay);
+		}
+		else
+		{
+			eventBus.unregister(regionSubscriber);
+			setRecording(false);
+			overlayManager.remove(overlay);
+			overlayManager.remove(performanceOverlay);
+			overlayManager.remove(infoOverlay);
+			overlayManager.remove(heatmapOverlay);
+			overlayManager.remove(veinHighlightOverlay);
+			overlayManager.remove(countdownOverlay);
+			reset();
+			veinIndex.clear();
+			veinTracker.clear();
+			widgetWriter.invalidate();
+		}
+	}
+
+	private void rebuildVeins()
+	{
+		veinIndex.rebuild();
+		veinTracker.clear();
+		for (int i = 0; i < TearsVeinIndex.GRID_SIZE; i++)
+		{
+			final int objectId = veinIndex.getObjectId(i);
+			if (objectId != -1)
 			{
-				maxTicks = newTicksLeft;
-				displayedTicksLeft = newTicksLeft;
-				minigameStarting = TICKS_FROM_JUNAS_TAIL;
+				veinTracker.onExisting(i, objectId);
 			}
-			else if (minigameStarting > 0)
+		}
+	}
+
+	private void setRecording(boolean recording)
+	{
+		if (!recording)
+		{
+			inputRecorder.stop();
+			return;
+		}
+
+		if (!inputRecorder.isRecording())
+		{
+			inputRecorder.start();
+			// Start off with the veins that are already there
+			for (int i = 0; i < TearsVeinIndex.GRID_SIZE; i++)
 			{
-				if (isInTearsMinigameArea(false))
+				final int objectId = veinIndex.getObjectId(i);
+				if (objectId != -1)
 				{
-					minigameStarting--;
+					inputRecorder.recordVein(true, TearsVeinIndex.getWorldX(i), TearsVeinIndex.getWorldY(i),
+						TEARS_WP_PLANE, objectId);
 				}
 			}
-			else if (newTicksLeft == ticksLeft)
+		}
+	}
+
+	void onVarbitChanged(VarbitChanged event)
+	{
+		updateVarbits();
+	}
+
+	private void updateVarbits()
+	{
+		varbitTicksLeft = client.getVarbitValue(VARBIT_TICKS_LEFT);
+		varbitTearsCollected = client.getVarbitValue(VARBIT_TEARS_COLLECTED);
+		varbitCollecting = client.getVarbitValue(VARBIT_COLLECTING) != 0;
+	}
+
+	void onDecorativeObjectSpawned(DecorativeObjectSpawned event)
+	{
+		veinIndex.onSpawned(event.getDecorativeObject());
+		onVeinChanged(true, event.getDecorativeObject());
+	}
+
+	void onDecorativeObjectDespawned(DecorativeObjectDespawned event)
+	{
+		veinIndex.onDespawned(event.getDecorativeObject());
+		onVeinChanged(false, event.getDecorativeObject());
+	}
+
+	private void onVeinChanged(boolean spawned, DecorativeObject obj)
+	{
+		if (TearsVeinIndex.getVeinState(obj.getId()) == TearCollectingState.NOT_COLLECTING)
+		{
+			return;
+		}
+
+		final WorldPoint wp = obj.getWorldLocation();
+		final int index = TearsVeinIndex.getIndex(wp.getX(), wp.getY(), wp.getPlane());
+		if (index >= 0)
+		{
+			if (spawned)
 			{
-				if (displayedTicksLeft > 0)
-				{
-					displayedTicksLeft--;
-				}
+				veinTracker.onSpawned(index, obj.getId(), client.getTickCount());
 			}
 			else
 			{
-				displayedTicksLeft = newTicksLeft;
+				veinTracker.onDespawned(index, obj.getId(), client.getTickCount());
 			}
 		}
-		else if (ticksLeft > 0)
+
+		if (inputRecorder.isRecording())
 		{
-			minigameEnding = true;
-			ticksLeft = 0;
-			displayedTicksLeft = 0;
+			inputRecorder.recordVein(spawned, wp.getX(), wp.getY(), wp.getPlane(), obj.getId());
 		}
+	}
 
-		if (inTearsMinigame)
+	void onWidgetLoaded(WidgetLoaded event)
+	{
+		if (event.getGroupId() == TEARS_WIDGET_GROUP_ID)
 		{
-			Widget timeLeftWidget = client.getWidget(TEARS_WIDGET_GROUP_ID, TEARS_WIDGET_CHILD_TIME_TEXT);
-			final int newTearsCollected = client.getVarbitValue(VARBIT_TEARS_COLLECTED);
-			collectingState = getCurrentCollectingState();
+			widgetWriter.invalidate();
+		}
+	}
 
-			if (timeLeftWidget != null)
-			{
-				boolean doFlash = config.getFlashingText() && client.getTickCount() % 2 != 0;
+	void onWidgetClosed(WidgetClosed event)
+	{
+		if (event.getGroupId() == TEARS_WIDGET_GROUP_ID)
+		{
+			widgetWriter.invalidate();
+		}
+	}
 
-				timeLeftWidget.setText(String.format(TICK_LEFT_STRING, displayedTicksLeft, maxTicks));
-				if (displayedTicksLeft > 0 && maxTicks > 0)
-				{
-					double part = displayedTicksLeft / (double) maxTicks;
-					if (part < 0.15)
-					{
-						timeLeftWidget.setTextColor(doFlash ? COLOR_ORANGE : COLOR_RED);
-					}
-					else if (part < 0.3)
-					{
-						timeLeftWidget.setTextColor(COLOR_LIGHT_ORANGE);
-					}
-					else if (part < 0.6)
-					{
-						timeLeftWidget.setTextColor(COLOR_YELLOW);
-					}
-					else
-					{
-						timeLeftWidget.setTextColor(COLOR_GREEN);
-					}
-				}
-				else
-				{
-					timeLeftWidget.setTextColor(COLOR_RED);
-				}
+	void onGameTick(GameTick event)
+	{
+		tickMonitor.onTick();
 
-				Widget waterTextWidget = client.getWidget(TEARS_WIDGET_GROUP_ID, TEARS_WIDGET_CHILD_WATER_TEXT);
-				if (waterTextWidget != null)
-				{
-					if (minigameStarting > 0)
-					{
-						if (minigameStarting >= TICKS_FOR_START_TIMER)
-						{
-							waterTextWidget.setText(MINIGAME_STARTING_STRING);
-						}
-						else
-						{
-							if (minigameStarting == 1)
-							{
-								waterTextWidget.setText(String.format(MINIGAME_STARTING_IN_SINGULAR_STRING, minigameStarting));
-							}
-							else
-							{
-								waterTextWidget.setText(String.format(MINIGAME_STARTING_IN_PLURAL_STRING, minigameStarting));
-							}
-						}
-
-						waterTextWidget.setTextColor(doFlash ? COLOR_DARK_GREEN : COLOR_GREEN);
-					}
-					else if (minigameEnding)
-					{
-						waterTextWidget.setText(MINIGAME_ENDING_STRING);
-						waterTextWidget.setTextColor(doFlash ? COLOR_ORANGE : COLOR_RED);
-					}
-					else
-					{
-						switch (collectingState)
-						{
-							case BLUE_VEIN:
-								waterTextWidget.setText(BLUE_VEIN_STRING);
-								waterTextWidget.setTextColor(doFlash ? COLOR_BLUE : COLOR_LIGHT_BLUE);
-								break;
-							case GREEN_VEIN:
-								waterTextWidget.setText(GREEN_VEIN_STRING);
-								waterTextWidget.setTextColor(doFlash ? COLOR_DARK_GREEN : COLOR_GREEN);
-								break;
-							case EMPTY_VEIN:
-								waterTextWidget.setText(EMPTY_VEIN_STRING);
-								waterTextWidget.setTextColor(doFlash ? COLOR_LIGHT_ORANGE : COLOR_ORANGE);
-								break;
-							default:
-								waterTextWidget.setText(NOT_COLLECTING_STRING);
-								waterTextWidget.setTextColor(COLOR_YELLOW);
-								break;
-						}
-					}
-				}
+		if (inputRecorder.isRecording())
+		{
+			recordTick();
+		}
 
-				final int tearsDiff = newTearsCollected - tearsCollected;
-				deltaInstantQueue.add(DeltaInstantPair.builder().delta(tearsDiff).time(Instant.now()).build());
-				Widget tearsCountWidget = client.getWidget(TEARS_WIDGET_GROUP_ID, TEARS_WIDGET_CHILD_COUNT_TEXT);
-				if (tearsCountWidget != null)
-				{
-					if (tearsDiff > 0)
-					{
-						tearsCountWidget.setTextColor(COLOR_GREEN);
-					}
-					else if (tearsDiff < 0)
-					{
-						tearsCountWidget.setTextColor(COLOR_RED);
-					}
-					else
-					{
-						tearsCountWidget.setTextColor(COLOR_YELLOW);
-					}
-				}
+		if (accountName == null)
+		{
+			updateAccountName();
+		}
+
+		final TearsConfigSnapshot config = configCache.get();
+		if (!historyHeatmapRequested && accountName != null && config.showHeatmap() && config.trackHistory())
+		{
+			historyHeatmapRequested = true;
+			historyStore.loadHeatmap(accountName, heatmap -> historyHeatmap = heatmap);
+		}
+
+		final long start = performanceMonitor.start();
+		final long watchdogStart = watchdog.start();
+		updateMinigame();
+		publishState();
+		watchdog.recordTick(watchdogStart);
+		performanceMonitor.record(PerformanceMetric.GAME_TICK, start);
+	}
+
+	@VisibleForTesting
+	void publishState()
+	{
+		if (engine.getMaxTicks() == 0 && deltaBuffer.isEmpty())
+		{
+			state = TearsStateSnapshot.EMPTY;
+			return;
+		}
+
+		final WorldPoint wp = getPlayerLocation();
+		final TearsConfigSnapshot config = configCache.get();
+		state = new TearsStateSnapshot(this, state, client.getTickCount(), wp == null ? -1 : wp.getX(),
+			wp == null ? -1 : wp.getY(), statistics, veinTracker, routeAdvisor, tickMonitor, veinIndex,
+			config.highlightVeins(), config.showHeatmap() && !watchdog.isShedding(DegradationLevel.NO_ANALYTICS));
+	}
+
+	private void recordTick()
+	{
+		final Player lp = client.getLocalPlayer();
+		final WorldPoint wp = lp == null ? null : lp.getWorldLocation();
+		if (wp != null)
+		{
+			inputRecorder.recordTick(client.getTickCount(), varbitTicksLeft, varbitTearsCollected, varbitCollecting,
+				wp.getX(), wp.getY(), wp.getPlane());
+		}
+	}
+
+	private void updateAccountName()
+	{
+		final Player lp = client.getLocalPlayer();
+		if (lp != null && lp.getName() != null)
+		{
+			accountName = lp.getName();
+			metricsExporter.setAccount(accountName);
+		}
+	}
+
+	private void updateMinigame()
+	{
+		final TearsConfigSnapshot config = configCache.get();
+		if (client.getGameState() != GameState.LOGGED_IN)
+		{
+			return;
+		}
+
+		final int area = getMinigameArea();
+		// Server ticks that never showed up still counted down
+		final int elapsed = config.compensateLateTicks() ? 1 + tickMonitor.getCompensation() : 1;
+		final int timer = engine.advanceTimer(varbitTicksLeft, area, elapsed);
+		if (timer == TearsEngine.TIMER_IDLE)
+		{
+			return;
+		}
+
+		if (timer == TearsEngine.TIMER_STARTED)
+		{
+			widgetWriter.prepare(engine.getMaxTicks());
+			watchdog.retryShedWork();
+			if (config.recordSessions())
+			{
+				sessionRecorder.start(engine.getMaxTicks());
+			}
+		}
+
+		final long collectingStateStart = performanceMonitor.start();
+		collectingState = getCurrentCollectingState();
+		performanceMonitor.record(PerformanceMetric.COLLECTING_STATE, collectingStateStart);
+
+		final boolean over = engine.updateTears(client.getTickCount(), varbitTearsCollected, collectingState.ordinal(),
+			area, config.getFlashingText() && !watchdog.isShedding(DegradationLevel.NO_FLASHING));
+		final int tearsDiff = engine.getTearsDiff();
+		if (engine.isCounting())
+		{
+			statistics.add(tearsDiff, collectingState);
+			metricsExporter.recordTick(tearsDiff, collectingState);
+			final WorldPoint wp = getPlayerLocation();
+			if (wp != null)
+			{
+				gameHeatmap.add(wp.getX(), wp.getY(), wp.getPlane(), tearsDiff, collectingState);
+				reactionTracker.update(client.getTickCount(), collectingState, varbitCollecting,
+					wp.getX(), wp.getY(), tearsDiff);
 			}
+		}
+		final boolean analytics = !watchdog.isShedding(DegradationLevel.NO_ANALYTICS);
+		if (analytics && (config.showNextBlue() || config.showRouteAdvice()))
+		{
+			veinTracker.updatePrediction(client.getTickCount());
+		}
+		else
+		{
+			veinTracker.clearPrediction();
+		}
+		if (analytics && config.showRouteAdvice())
+		{
+			updateRouteAdvice();
+		}
+		else
+		{
+			routeAdvisor.clearTarget();
+		}
 
-			if (minigameEnding && !isInTearsMinigameArea(false))
+		if (widgetWriter.isLoaded())
+		{
+			widgetWriter.writeTicksLeft(engine.getDisplayedTicksLeft(), engine.getMaxTicks(), engine.getTicksLeftColor());
+			widgetWriter.writeWaterText(engine.getMessage() == TearsEngine.MESSAGE_STARTING_IN
+				? MINIGAME_STARTING_IN_STRINGS[engine.getMinigameStarting()] : MESSAGE_STRINGS[engine.getMessage()],
+				engine.getMessageColor());
+
+			final long now = clock.nanoTime();
+			deltaBuffer.expire(now, DELTA_HISTORY_MAX_AGE);
+			if (tearsDiff != 0)
 			{
-				reset();
+				deltaBuffer.add(tearsDiff, now);
 			}
-			else
+			widgetWriter.writeTearsCountColor(engine.getTearsCountColor());
+		}
+
+		sessionRecorder.record(client.getTickCount(), engine.getDisplayedTicksLeft(), varbitTearsCollected, tearsDiff,
+			collectingState, engine.isCounting());
+
+		if (over)
+		{
+			reset();
+		}
+	}
+
+	private void updateRouteAdvice()
+	{
+		final WorldPoint wp = getPlayerLocation();
+		if (wp != null && engine.isCounting())
+		{
+			routeAdvisor.update(wp.getX(), wp.getY(), wp.getPlane(), client.getTickCount());
+		}
+		else
+		{
+			routeAdvisor.clearTarget();
+		}
+	}
+
+	private WorldPoint getPlayerLocation()
+	{
+		final Player lp = client.getLocalPlayer();
+		return lp == null ? null : lp.getWorldLocation();
+	}
+
+	private void saveSession()
+	{
+		final Player lp = client.getLocalPlayer();
+		if (!configCache.get().trackHistory() || lp == null || lp.getName() == null)
+		{
+			return;
+		}
+
+		final TearsSessionSummary summary = new TearsSessionSummary(System.currentTimeMillis(), engine.getTearsCollected(),
+			engine.getMaxTicks(),
+			statistics.copyStateTicks());
+		historyStore.add(lp.getName(), summary, new TearsTileHeatmap(gameHeatmap), stats ->
+		{
+			historyHeatmap = new TearsTileHeatmap(stats.getHeatmap());
+
+			final String message = new ChatMessageBuilder()
+				.append(ChatColorType.NORMAL)
+				.append("Tears of Guthix: ")
+				.append(ChatColorType.HIGHLIGHT)
+				.append(Integer.toString(summary.getTearsCollected()))
+				.append(ChatColorType.NORMAL)
+				.append(" tears collected. Best: ")
+				.append(ChatColorType.HIGHLIGHT)
+				.append(Integer.toString(stats.getBestTears()))
+				.append(ChatColorType.NORMAL)
+				.append(", average: ")
+				.append(ChatColorType.HIGHLIGHT)
+				.append(String.format("%.1f", stats.getAverageTears()))
+				.append(ChatColorType.NORMAL)
+				.append(" over " + stats.getGames() + (stats.getGames() == 1 ? " game." : " games."))
+				.build();
+
+			chatMessageManager.queue(QueuedMessage.builder()
+				.type(ChatMessageType.CONSOLE)
+				.runeLiteFormattedMessage(message)
+				.build());
+		});
+	}
+
+	private void sendReactionSummary()
+	{
+		final StringBuilder histogram = new StringBuilder();
+		for (int ticks = 1; ticks <= TearsReactionTracker.MAX_TICKS; ticks++)
+		{
+			final int count = reactionTracker.getCount(ticks);
+			if (count > 0)
 			{
-				ticksLeft = newTicksLeft;
-				tearsCollected = newTearsCollected;
+				histogram.append(histogram.length() == 0 ? "" : ", ")
+					.append(ticks).append(ticks == TearsReactionTracker.MAX_TICKS ? "+" : "").append("t x").append(count);
 			}
 		}
+
+		final String message = new ChatMessageBuilder()
+			.append(ChatColorType.NORMAL)
+			.append("Reacted to ")
+			.append(ChatColorType.HIGHLIGHT)
+			.append(Integer.toString(reactionTracker.getReactions()))
+			.append(ChatColorType.NORMAL)
+			.append(" vein changes in ")
+			.append(ChatColorType.HIGHLIGHT)
+			.append(String.format("%.1f", reactionTracker.getAverageTicks()))
+			.append(ChatColorType.NORMAL)
+			.append(" ticks on average (median " + reactionTracker.getMedianTicks() + "; " + histogram + "), losing ")
+			.append(ChatColorType.HIGHLIGHT)
+			.append(Integer.toString(reactionTracker.getTearsLost()))
+			.append(ChatColorType.NORMAL)
+			.append(" tears while reacting.")
+			.build();
+
+		chatMessageManager.queue(QueuedMessage.builder()
+			.type(ChatMessageType.CONSOLE)
+			.runeLiteFormattedMessage(message)
+			.build());
 	}
 
 	private boolean isInTearsMinigameArea()
 	{
-		return isInTearsMinigameArea(true);
+		return getMinigameArea() != TearsEngine.AREA_OUTSIDE;
 	}
 
-	private boolean isInTearsMinigameArea(boolean includeExterior)
+	private int getMinigameArea()
 	{
-		Player lp = client.getLocalPlayer();
-		if (lp != null)
+		final WorldPoint wp = getPlayerLocation();
+		if (wp == null || wp.getPlane() != TEARS_WP_PLANE || wp.getX() < TEARS_WP_MIN_X || wp.getX() > TEARS_WP_MAX_X
+			|| wp.getY() < TEARS_WP_MIN_Y || wp.getY() > TEARS_WP_MAX_Y)
 		{
-			WorldPoint wp = lp.getWorldLocation();
-			return (wp != null && wp.getPlane() == TEARS_WP_PLANE
-				&& wp.getX() >= TEARS_WP_MIN_X + (includeExterior ? 0 : 1)
-				&& wp.getX() <= TEARS_WP_MAX_X
-				&& wp.getY() >= TEARS_WP_MIN_Y && wp.getY() <= TEARS_WP_MAX_Y);
+			return TearsEngine.AREA_OUTSIDE;
 		}
-		return false;
+		return wp.getX() == TEARS_WP_MIN_X ? TearsEngine.AREA_ENTRANCE : TearsEngine.AREA_CAVE;
 	}
 
-	private TearCollectingState getCurrentCollectingState()
+	int getMaxTicks()
 	{
-		if (client.getVarbitValue(VARBIT_COLLECTING) == 0)
+		return engine.getMaxTicks();
+	}
+
+	int getMinigameStarting()
+	{
+		return engine.getMinigameStarting();
+	}
+
+	boolean isMinigameEnding()
+	{
+		return engine.isMinigameEnding();
+	}
+
+	int getDisplayedTicksLeft()
+	{
+		return engine.getDisplayedTicksLeft();
+	}
+
+	int getTearsCollected()
+	{
+		return engine.getTearsCollected();
+	}
+
+	@VisibleForTesting
+	TearCollectingState getCurrentCollectingState()
+	{
+		if (!varbitCollecting)
 		{
 			return TearCollectingState.NOT_COLLECTING;
 		}
 
-		// Only ever one tear thing adjacent to the player so this logic should be fine
 		Player lp = client.getLocalPlayer();
-
 		if (lp != null)
 		{
 			WorldPoint wp = lp.getWorldLocation();
-
-			// Don't need to check dx(-1) as there is no tears on the western side
-			WorldPoint[] toCheck = new WorldPoint[3];
-			toCheck[0] = wp.dx(1);
-			toCheck[1] = wp.dy(1);
-			toCheck[2] = wp.dy(-1);
-
-			Tile[][] tiles = client.getScene().getTiles()[wp.getPlane()];
-			for (WorldPoint target : toCheck)
+			if (wp != null)
 			{
-				final LocalPoint localTarget = LocalPoint.fromWorld(client, target);
-				if (localTarget != null)
-				{
-					final DecorativeObject obj = tiles[localTarget.getSceneX()][localTarget.getSceneY()].getDecorativeObject();
-					if (obj != null)
-					{
-						int id = obj.getId();
-						if (NO_TEARS_IDS.contains(id))
-						{
-							return TearCollectingState.EMPTY_VEIN;
-						}
-						else if (BLUE_TEARS_IDS.contains(id))
-						{
-							return TearCollectingState.BLUE_VEIN;
-						}
-						else if (GREEN_TEARS_IDS.contains(id))
-						{
-							return TearCollectingState.GREEN_VEIN;
-						}
-					}
-				}
+				return veinIndex.getAdjacentVeinState(wp.getX(), wp.getY(), wp.getPlane());
 			}
 		}
 
@@ -25,14 +25,17 @@
  */
 package com.improvedtearsinterface;
 
-import java.time.Instant;
-import lombok.Builder;
-import lombok.Data;
+import javax.inject.Singleton;
 
-@Data
-@Builder
-public class DeltaInstantPair
+/**
+ * Source of time for the minigame logic, so a recorded session can be replayed
+ * on a clock that runs faster than the real one.
+ */
+@Singleton
+class TearsClock
 {
-	private int delta;
-	private Instant time;
+	long nanoTime()
+	{
+		return System.nanoTime();
+	}
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface;
+
+/**
+ * Immutable copy of every {@link ImprovedTearsInterfaceConfig} option. Reading the config directly
+ * goes through a proxy and a string keyed lookup, so the tick and render paths read one of these
+ * instead. Methods are named after the config's so the two read the same.
+ */
+class TearsConfigSnapshot
+{
+	private final boolean flashingText;
+	private final boolean showPlusMinusOnCollect;
+	private final boolean showPerformanceStats;
+	private final boolean recordInputs;
+	private final boolean recordSessions;
+	private final boolean trackHistory;
+	private final boolean showProjection;
+	private final boolean showNextBlue;
+	private final boolean showHeatmap;
+	private final boolean showRouteAdvice;
+	private final boolean highlightVeins;
+	private final boolean smoothCountdown;
+	private final boolean compensateLateTicks;
+	private final boolean exportMetrics;
+	private final boolean showReactionSummary;
+	private final boolean degradeUnderLoad;
+	private final int tickBudget;
+	private final int frameBudget;
+
+	TearsConfigSnapshot(ImprovedTearsInterfaceConfig config)
+	{
+		flashingText = config.getFlashingText();
+		showPlusMinusOnCollect = config.showPlusMinusOnCollect();
+		showPerformanceStats = config.showPerformanceStats();
+		recordInputs = config.recordInputs();
+		recordSessions = config.recordSessions();
+		trackHistory = config.trackHistory();
+		showProjection = config.showProjection();
+		showNextBlue = config.showNextBlue();
+		showHeatmap = config.showHeatmap();
+		showRouteAdvice = config.showRouteAdvice();
+		highlightVeins = config.highlightVeins();
+		smoothCountdown = config.smoothCountdown();
+		compensateLateTicks = config.compensateLateTicks();
+		exportMetrics = config.exportMetrics();
+		showReactionSummary = config.showReactionSummary();
+		degradeUnderLoad = config.degradeUnderLoad();
+		tickBudget = config.tickBudget();
+		frameBudget = config.frameBudget();
+	}
+
+	boolean getFlashingText()
+	{
+		return flashingText;
+	}
+
+	boolean showPlusMinusOnCollect()
+	{
+		return showPlusMinusOnCollect;
+	}
+
+	boolean showPerformanceStats()
+	{
+		return showPerformanceStats;
+	}
+
+	boolean recordInputs()
+	{
+		return recordInputs;
+	}
+
+	boolean recordSessions()
+	{
+		return recordSessions;
+	}
+
+	boolean trackHistory()
+	{
+		return trackHistory;
+	}
+
+	boolean showProjection()
+	{
+		return showProjection;
+	}
+
+	boolean showNextBlue()
+	{
+		return showNextBlue;
+	}
+
+	boolean showHeatmap()
+	{
+		return showHeatmap;
+	}
+
+	boolean showRouteAdvice()
+	{
+		return showRouteAdvice;
+	}
+
+	boolean highlightVeins()
+	{
+		return highlightVeins;
+	}
+
+	boolean smoothCountdown()
+	{
+		return smoothCountdown;
+	}
+
+	boolean compensateLateTicks()
+	{
+		return compensateLateTicks;
+	}
+
+	boolean exportMetrics()
+	{
+		return exportMetrics;
+	}
+
+	boolean showReactionSummary()
+	{
+		return showReactionSummary;
+	}
+
+	boolean degradeUnderLoad()
+	{
+		return degradeUnderLoad;
+	}
+
+	int tickBudget()
+	{
+		return tickBudget;
+	}
+
+	int frameBudget()
+	{
+		return frameBudget;
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+import net.runelite.api.Client;
+import net.runelite.api.Constants;
+import net.runelite.api.widgets.Widget;
+import net.runelite.client.ui.overlay.Overlay;
+import net.runelite.client.ui.overlay.OverlayLayer;
+import net.runelite.client.ui.overlay.OverlayPosition;
+import net.runelite.client.ui.overlay.components.TextComponent;
+
+/**
+ * Shows the time left in tenths of a second next to the tick timer, interpolated between ticks
+ * from when the last one arrived. Every string it can show is made once per game and the
+ * anchor is only looked up once per tick, so frames don't allocate.
+ */
+class TearsCountdownOverlay extends Overlay
+{
+	private static final long TENTH = TimeUnit.MILLISECONDS.toNanos(100);
+	private static final int TENTHS_PER_TICK = Constants.GAME_TICK_LENGTH / 100;
+	private static final int OFFSET_X = 4;
+
+	private final Client client;
+	private final ImprovedTearsInterfacePlugin plugin;
+	private final TearsConfigCache configCache;
+	private final TearsClock clock;
+
+	private final TextComponent textComponent = new TextComponent();
+	private final Point textPosition = new Point();
+
+	private String[] strings = new String[0];
+	private TearsStateSnapshot anchoredState;
+	private boolean anchored;
+
+	@Inject
+	TearsCountdownOverlay(Client client, ImprovedTearsInterfacePlugin plugin, TearsConfigCache configCache,
+		TearsClock clock)
+	{
+		setPosition(OverlayPosition.DYNAMIC);
+		setLayer(OverlayLayer.ABOVE_WIDGETS);
+		this.client = client;
+		this.plugin = plugin;
+		this.configCache = configCache;
+		this.clock = clock;
+		textComponent.setColor(Color.WHITE);
+	}
+
+	@Override
+	public Dimension render(Graphics2D graphics)
+	{
+		final TearsStateSnapshot state = plugin.getState();
+		if (!configCache.get().smoothCountdown() || state.getMaxTicks() == 0 || state.getMinigameStarting() > 0
+			|| state.isMinigameEnding() || state.getDisplayedTicksLeft() == 0)
+		{
+			return null;
+		}
+
+		if (state != anchoredState)
+		{
+			anchoredState = state;
+			anchored = updateAnchor();
+			if (strings.length <= state.getMaxTicks() * TENTHS_PER_TICK)
+			{
+				buildStrings(state.getMaxTicks());
+			}
+		}
+
+		if (!anchored)
+		{
+			return null;
+		}
+
+		// Don't count below the next tick if it is late, the timer would jump back up when it arrives
+		final long left = state.getDisplayedTicksLeft() * state.getTickLength();
+		final long elapsed = Math.min(clock.nanoTime() - state.getTickTime(), state.getTickLength());
+		final int tenths = (int) Math.max(0, Math.min(strings.length - 1, (left - elapsed) / TENTH));
+
+		textComponent.setText(strings[tenths]);
+		textComponent.setPosition(textPosition);
+		textComponent.render(graphics);
+		return null;
+	}
+
+	private boolean updateAnchor()
+	{
+		final Widget timer = client.getWidget(ImprovedTearsInterfacePlugin.TEARS_WIDGET_GROUP_ID,
+			ImprovedTearsInterfacePlugin.TEARS_WIDGET_CHILD_TIME_TEXT);
+		if (timer == null || timer.isHidden())
+		{
+			return false;
+		}
+
+		final Rectangle bounds = timer.getBounds();
+		textPosition.setLocation(bounds.x + bounds.width + OFFSET_X, bounds.y + bounds.height);
+		return true;
+	}
+
+	private void buildStrings(int maxTicks)
+	{
+		strings = new String[maxTicks * TENTHS_PER_TICK + 1];
+		for (int i = 0; i < strings.length; i++)
+		{
+			strings[i] = (i / 10) + "." + (i % 10) + "s";
+		}
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Polygon;
+import javax.inject.Inject;
+import net.runelite.api.Client;
+import net.runelite.client.ui.overlay.Overlay;
+import net.runelite.client.ui.overlay.OverlayLayer;
+import net.runelite.client.ui.overlay.OverlayPosition;
+import net.runelite.client.ui.overlay.OverlayUtil;
+
+class TearsHeatmapOverlay extends Overlay
+{
+	// Tiles collected from for fewer ticks than this don't say much yet
+	private static final int MIN_COLLECTING_TICKS = 5;
+	private static final int FILL_ALPHA = 80;
+
+	// Goes from red for tiles that lose tears, through yellow, to green for the best tile
+	private static final Color[] PALETTE = new Color[21];
+
+	static
+	{
+		for (int i = 0; i < PALETTE.length; i++)
+		{
+			final double f = i / (double) (PALETTE.length - 1);
+			final int red = f < 0.5 ? 255 : (int) (255 * (1 - f) * 2);
+			final int green = f > 0.5 ? 255 : (int) (255 * f * 2);
+			PALETTE[i] = new Color(red, green, 0, FILL_ALPHA);
+		}
+	}
+
+	private final Client client;
+	private final ImprovedTearsInterfacePlugin plugin;
+	private final TearsConfigCache configCache;
+	private final TearsWatchdog watchdog;
+
+	private final double[] rates = new double[TearsTileHeatmap.TILE_COUNT];
+	private final TilePolygonCache polygons;
+
+	@Inject
+	TearsHeatmapOverlay(Client client, ImprovedTearsInterfacePlugin plugin, TearsConfigCache configCache,
+		TearsWatchdog watchdog)
+	{
+		setPosition(OverlayPosition.DYNAMIC);
+		setLayer(OverlayLayer.ABOVE_SCENE);
+		this.client = client;
+		this.plugin = plugin;
+		this.configCache = configCache;
+		this.watchdog = watchdog;
+		polygons = new TilePolygonCache(client, TearsTileHeatmap.TILE_COUNT);
+	}
+
+	@Override
+	public Dimension render(Graphics2D graphics)
+	{
+		if (!configCache.get().showHeatmap() || client.getPlane() != ImprovedTearsInterfacePlugin.TEARS_WP_PLANE
+			|| watchdog.isShedding(DegradationLevel.NO_ANALYTICS))
+		{
+			return null;
+		}
+
+		final TearsStateSnapshot state = plugin.getState();
+
+		// Net tears per collecting tick, colored relative to the best tile
+		double maxRate = 0;
+		for (int i = 0; i < TearsTileHeatmap.TILE_COUNT; i++)
+		{
+			final int ticks = state.getHeatmapTicks(i);
+			final int net = state.getHeatmapNet(i);
+			rates[i] = ticks < MIN_COLLECTING_TICKS ? Double.NaN : net / (double) ticks;
+			if (rates[i] > maxRate)
+			{
+				maxRate = rates[i];
+			}
+		}
+
+		polygons.validate();
+		for (int i = 0; i < TearsTileHeatmap.TILE_COUNT; i++)
+		{
+			if (Double.isNaN(rates[i]))
+			{
+				continue;
+			}
+
+			final Polygon poly = polygons.get(i, TearsTileHeatmap.getWorldX(i), TearsTileHeatmap.getWorldY(i));
+			if (poly != null)
+			{
+				OverlayUtil.renderPolygon(graphics, poly, getColor(maxRate == 0 ? 0 : rates[i] / maxRate));
+			}
+		}
+
+		return null;
+	}
+
+	private static Color getColor(double fraction)
+	{
+		final double f = Math.max(0, Math.min(1, fraction));
+		return PALETTE[(int) Math.round(f * (PALETTE.length - 1))];
+	}
+}
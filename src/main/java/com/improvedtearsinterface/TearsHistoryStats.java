@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface;
+
+import lombok.Getter;
+
+/**
+ * Aggregate stats over all the completed games of an account.
+ */
+class TearsHistoryStats
+{
+	@Getter
+	private int games = 0;
+	@Getter
+	private long totalTears = 0;
+	@Getter
+	private int bestTears = 0;
+	private final long[] stateTicks = new long[TearCollectingState.values().length];
+	@Getter
+	private final TearsTileHeatmap heatmap = new TearsTileHeatmap();
+
+	void add(TearsSessionSummary summary)
+	{
+		games++;
+		totalTears += summary.getTearsCollected();
+		bestTears = Math.max(bestTears, summary.getTearsCollected());
+		final int[] summaryStateTicks = summary.getStateTicks();
+		for (int i = 0; i < stateTicks.length && i < summaryStateTicks.length; i++)
+		{
+			stateTicks[i] += summaryStateTicks[i];
+		}
+	}
+
+	double getAverageTears()
+	{
+		return games == 0 ? 0 : totalTears / (double) games;
+	}
+
+	long getStateTicks(TearCollectingState state)
+	{
+		return stateTicks[state.ordinal()];
+	}
+}
@@ -0,0 +1,482 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.client.RuneLite;
+
+/**
+ * Per-account history of completed games. All reads and writes happen on the executor: new games
+ * are batched in memory and appended to disk as a new segment file every so often, segments get
+ * compacted into one once there are too many, and an account's segments are only read the first
+ * time its stats are needed.
+ * <p>
+ * Segments are named {@code segment-<n>.bin}. A compacted segment is named after the range of segments
+ * it replaces, {@code segment-<first>-<last>.bin}, so if the replaced ones are still around after a
+ * crash they are recognised as such, ignored and deleted on the next listing instead of being counted twice.
+ * <p>
+ * Segment files start with int {@link #MAGIC}, short {@link #VERSION}, short {@link #RECORD_SIZE}
+ * and int record count, followed by the records: long end time, short tears collected, short max ticks
+ * and one short of ticks per {@link TearCollectingState}.
+ * <p>
+ * The per tile {@link TearsTileHeatmap} of all the games put together is small enough to be kept
+ * as a single file, rewritten whenever a batch is flushed. It starts with int {@link #HEATMAP_MAGIC},
+ * short {@link #VERSION} and short tile count, followed by the collecting ticks, tears gained and
+ * tears lost of every tile as ints.
+ */
+@Slf4j
+@Singleton
+class TearsHistoryStore
+{
+	static final File HISTORY_DIR = new File(RuneLite.RUNELITE_DIR, "improved-tears" + File.separator + "history");
+
+	private static final int MAGIC = 0x544F4748;
+	private static final short VERSION = 1;
+	private static final int STATE_COUNT = TearCollectingState.values().length;
+	private static final int HEADER_SIZE = 4 + 2 + 2 + 4;
+	private static final int RECORD_SIZE = 8 + 2 + 2 + 2 * STATE_COUNT;
+	private static final String SEGMENT_PREFIX = "segment-";
+	private static final String SEGMENT_EXTENSION = ".bin";
+	private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)(?:-(\\d+))?\\.bin");
+	private static final int HEATMAP_MAGIC = 0x544F474D;
+	private static final String HEATMAP_FILE = "heatmap.bin";
+
+	private static final int FLUSH_BATCH_SIZE = 5;
+	private static final long FLUSH_INTERVAL_MINUTES = 5;
+	private static final int COMPACT_SEGMENT_COUNT = 16;
+
+	private final ScheduledExecutorService executor;
+	private final File historyDir;
+
+	// Only touched on the executor
+	private final Map<String, List<TearsSessionSummary>> pending = new HashMap<>();
+	private final Map<String, TearsHistoryStats> loadedStats = new HashMap<>();
+	private final Set<String> dirtyHeatmaps = new HashSet<>();
+
+	private ScheduledFuture<?> flushFuture;
+
+	@Inject
+	TearsHistoryStore(ScheduledExecutorService executor)
+	{
+		this(executor, HISTORY_DIR);
+	}
+
+	TearsHistoryStore(ScheduledExecutorService executor, File historyDir)
+	{
+		this.executor = executor;
+		this.historyDir = historyDir;
+	}
+
+	void startUp()
+	{
+		flushFuture = executor.scheduleWithFixedDelay(this::flushAll,
+			FLUSH_INTERVAL_MINUTES, FLUSH_INTERVAL_MINUTES, TimeUnit.MINUTES);
+	}
+
+	void shutDown()
+	{
+		if (flushFuture != null)
+		{
+			flushFuture.cancel(false);
+			flushFuture = null;
+		}
+		executor.execute(this::flushAll);
+	}
+
+	/**
+	 * Adds a completed game and where it was collected from to the account's history, then hands
+	 * the account's updated stats to the callback. The callback is run on the executor.
+	 */
+	void add(String account, TearsSessionSummary summary, TearsTileHeatmap heatmap,
+		Consumer<TearsHistoryStats> callback)
+	{
+		final String key = toKey(account);
+		executor.execute(() ->
+		{
+			final TearsHistoryStats stats = getStats(key);
+			stats.add(summary);
+			stats.getHeatmap().merge(heatmap);
+			dirtyHeatmaps.add(key);
+
+			final List<TearsSessionSummary> accountPending = pending.computeIfAbsent(key, k -> new ArrayList<>());
+			accountPending.add(summary);
+			if (accountPending.size() >= FLUSH_BATCH_SIZE)
+			{
+				flush(key);
+			}
+
+			if (callback != null)
+			{
+				callback.accept(stats);
+			}
+		});
+	}
+
+	/**
+	 * Hands a copy of the account's heatmap over all its games to the callback, which is run on the executor.
+	 */
+	void loadHeatmap(String account, Consumer<TearsTileHeatmap> callback)
+	{
+		final String key = toKey(account);
+		executor.execute(() -> callback.accept(new TearsTileHeatmap(getStats(key).getHeatmap())));
+	}
+
+	private TearsHistoryStats getStats(String key)
+	{
+		TearsHistoryStats stats = loadedStats.get(key);
+		if (stats == null)
+		{
+			stats = new TearsHistoryStats();
+			for (File segment : listSegments(key))
+			{
+				try
+				{
+					readSegment(segment, stats::add);
+				}
+				catch (IOException e)
+				{
+					log.warn("Unable to read history segment {}", segment, e);
+				}
+			}
+
+			final File heatmapFile = new File(new File(historyDir, key), HEATMAP_FILE);
+			if (heatmapFile.exists())
+			{
+				try
+				{
+					readHeatmap(heatmapFile, stats.getHeatmap());
+				}
+				catch (IOException e)
+				{
+					log.warn("Unable to read heatmap {}", heatmapFile, e);
+				}
+			}
+			loadedStats.put(key, stats);
+		}
+		return stats;
+	}
+
+	private void flushAll()
+	{
+		for (String key : new ArrayList<>(pending.keySet()))
+		{
+			flush(key);
+		}
+	}
+
+	private void flush(String key)
+	{
+		final List<TearsSessionSummary> accountPending = pending.get(key);
+		if (accountPending == null || accountPending.isEmpty())
+		{
+			return;
+		}
+
+		final File dir = new File(historyDir, key);
+		if (!dir.exists() && !dir.mkdirs())
+		{
+			log.warn("Unable to create history directory {}", dir);
+			return;
+		}
+
+		File[] segments = listSegments(key);
+		try
+		{
+			final File segment = new File(dir, SEGMENT_PREFIX + nextSegmentNumber(segments) + SEGMENT_EXTENSION);
+			final File temp = new File(dir, segment.getName() + ".tmp");
+			writeSegment(temp, accountPending);
+			Files.move(temp.toPath(), segment.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			accountPending.clear();
+		}
+		catch (IOException e)
+		{
+			log.warn("Unable to write history for {}", key, e);
+			return;
+		}
+
+		segments = listSegments(key);
+		if (segments.length > COMPACT_SEGMENT_COUNT)
+		{
+			compact(dir, segments);
+		}
+
+		if (dirtyHeatmaps.remove(key))
+		{
+			final File heatmapFile = new File(dir, HEATMAP_FILE);
+			final File temp = new File(dir, HEATMAP_FILE + ".tmp");
+			try
+			{
+				writeHeatmap(temp, loadedStats.get(key).getHeatmap());
+				Files.move(temp.toPath(), heatmapFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (IOException e)
+			{
+				log.warn("Unable to write heatmap {}", heatmapFile, e);
+			}
+		}
+	}
+
+	/**
+	 * Merges all the given segments into a single new one, named after the range it replaces.
+	 * Once it has been moved into place the old segments are superseded, deleting them is only cleanup.
+	 */
+	private void compact(File dir, File[] segments)
+	{
+		final List<TearsSessionSummary> all = new ArrayList<>();
+		try
+		{
+			for (File segment : segments)
+			{
+				readSegment(segment, all::add);
+			}
+
+			final File compacted = new File(dir, SEGMENT_PREFIX + firstSegmentNumber(segments[0]) + "-"
+				+ segmentNumber(segments[segments.length - 1]) + SEGMENT_EXTENSION);
+			final File temp = new File(dir, compacted.getName() + ".tmp");
+			writeSegment(temp, all);
+			Files.move(temp.toPath(), compacted.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (IOException e)
+		{
+			log.warn("Unable to compact history in {}", dir, e);
+			return;
+		}
+
+		for (File segment : segments)
+		{
+			if (!segment.delete())
+			{
+				log.warn("Unable to delete compacted history segment {}, it will be ignored", segment);
+			}
+		}
+	}
+
+	private static void writeSegment(File file, List<TearsSessionSummary> summaries) throws IOException
+	{
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+		{
+			out.writeInt(MAGIC);
+			out.writeShort(VERSION);
+			out.writeShort(RECORD_SIZE);
+			out.writeInt(summaries.size());
+			for (TearsSessionSummary summary : summaries)
+			{
+				out.writeLong(summary.getEndTime());
+				out.writeShort(summary.getTearsCollected());
+				out.writeShort(summary.getMaxTicks());
+				for (int i = 0; i < STATE_COUNT; i++)
+				{
+					out.writeShort(summary.getStateTicks()[i]);
+				}
+			}
+		}
+	}
+
+	private static void readSegment(File file, Consumer<TearsSessionSummary> consumer) throws IOException
+	{
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+		{
+			if (in.readInt() != MAGIC || in.readShort() != VERSION)
+			{
+				throw new IOException("Not a history segment");
+			}
+
+			final int recordSize = in.readShort();
+			final int count = in.readInt();
+			if (recordSize < RECORD_SIZE)
+			{
+				throw new IOException("Unsupported record size " + recordSize);
+			}
+			if (count < 0 || HEADER_SIZE + (long) count * recordSize > file.length())
+			{
+				throw new IOException("History segment is truncated");
+			}
+
+			for (int i = 0; i < count; i++)
+			{
+				final long endTime = in.readLong();
+				final int tearsCollected = in.readShort();
+				final int maxTicks = in.readShort();
+				final int[] stateTicks = new int[STATE_COUNT];
+				for (int j = 0; j < STATE_COUNT; j++)
+				{
+					stateTicks[j] = in.readShort();
+				}
+				// Skip anything a newer version may have appended to the record
+				in.skipBytes(recordSize - RECORD_SIZE);
+				consumer.accept(new TearsSessionSummary(endTime, tearsCollected, maxTicks, stateTicks));
+			}
+		}
+	}
+
+	private static void writeHeatmap(File file, TearsTileHeatmap heatmap) throws IOException
+	{
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+		{
+			out.writeInt(HEATMAP_MAGIC);
+			out.writeShort(VERSION);
+			out.writeShort(TearsTileHeatmap.TILE_COUNT);
+			for (int i = 0; i < TearsTileHeatmap.TILE_COUNT; i++)
+			{
+				out.writeInt(heatmap.getCollectingTicks(i));
+				out.writeInt(heatmap.getTearsGained(i));
+				out.writeInt(heatmap.getTearsLost(i));
+			}
+		}
+	}
+
+	private static void readHeatmap(File file, TearsTileHeatmap heatmap) throws IOException
+	{
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+		{
+			if (in.readInt() != HEATMAP_MAGIC || in.readShort() != VERSION
+				|| in.readShort() != TearsTileHeatmap.TILE_COUNT)
+			{
+				throw new IOException("Not a heatmap");
+			}
+
+			for (int i = 0; i < TearsTileHeatmap.TILE_COUNT; i++)
+			{
+				heatmap.add(i, in.readInt(), in.readInt(), in.readInt());
+			}
+		}
+	}
+
+	/**
+	 * Lists the account's segments in order, leaving out and deleting any that a compacted segment replaces.
+	 */
+	private File[] listSegments(String key)
+	{
+		final File[] files = new File(historyDir, key).listFiles((dir, name) -> SEGMENT_NAME.matcher(name).matches());
+		if (files == null)
+		{
+			return new File[0];
+		}
+
+		final List<File> segments = new ArrayList<>(files.length);
+		for (File file : files)
+		{
+			if (isReplaced(file, files))
+			{
+				// Left over from a compaction that didn't get to delete it
+				if (!file.delete())
+				{
+					log.debug("Unable to delete replaced history segment {}", file);
+				}
+				continue;
+			}
+			segments.add(file);
+		}
+		segments.sort((a, b) -> Integer.compare(segmentNumber(a), segmentNumber(b)));
+		return segments.toArray(new File[0]);
+	}
+
+	private static boolean isReplaced(File segment, File[] segments)
+	{
+		final int first = firstSegmentNumber(segment);
+		final int last = segmentNumber(segment);
+		for (File other : segments)
+		{
+			final int otherFirst = firstSegmentNumber(other);
+			final int otherLast = segmentNumber(other);
+			if (otherFirst <= first && otherLast >= last && (otherFirst < first || otherLast > last))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int nextSegmentNumber(File[] segments)
+	{
+		return segments.length == 0 ? 0 : segmentNumber(segments[segments.length - 1]) + 1;
+	}
+
+	/**
+	 * Gets the number of the segment, the last one it replaces for a compacted segment.
+	 */
+	private static int segmentNumber(File segment)
+	{
+		final Matcher matcher = SEGMENT_NAME.matcher(segment.getName());
+		if (!matcher.matches())
+		{
+			return -1;
+		}
+		return parseSegmentNumber(matcher.group(2) != null ? matcher.group(2) : matcher.group(1));
+	}
+
+	/**
+	 * Gets the number of the first segment a compacted segment replaces, or the segment's own number.
+	 */
+	private static int firstSegmentNumber(File segment)
+	{
+		final Matcher matcher = SEGMENT_NAME.matcher(segment.getName());
+		return matcher.matches() ? parseSegmentNumber(matcher.group(1)) : -1;
+	}
+
+	private static int parseSegmentNumber(String number)
+	{
+		try
+		{
+			return Integer.parseInt(number);
+		}
+		catch (NumberFormatException e)
+		{
+			return -1;
+		}
+	}
+
+	private static String toKey(String account)
+	{
+		return account.toLowerCase().replaceAll("[^a-z0-9_-]", "_");
+	}
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.util.List;
+import javax.inject.Inject;
+import net.runelite.client.ui.overlay.Overlay;
+import net.runelite.client.ui.overlay.OverlayPosition;
+import net.runelite.client.ui.overlay.components.LayoutableRenderableEntity;
+import net.runelite.client.ui.overlay.components.LineComponent;
+import net.runelite.client.ui.overlay.components.PanelComponent;
+import net.runelite.client.ui.overlay.components.TitleComponent;
+
+class TearsInfoOverlay extends Overlay
+{
+	private static final int PANEL_WIDTH = 170;
+
+	private final ImprovedTearsInterfacePlugin plugin;
+	private final TearsConfigCache configCache;
+
+	private final PanelComponent panelComponent = new PanelComponent();
+
+	// The panel only changes once a tick, so it is only rebuilt when a new state is published
+	private TearsStateSnapshot builtState;
+	private TearsConfigSnapshot builtConfig;
+
+	@Inject
+	TearsInfoOverlay(ImprovedTearsInterfacePlugin plugin, TearsConfigCache configCache)
+	{
+		setPosition(OverlayPosition.TOP_LEFT);
+		this.plugin = plugin;
+		this.configCache = configCache;
+		panelComponent.setPreferredSize(new Dimension(PANEL_WIDTH, 0));
+	}
+
+	@Override
+	public Dimension render(Graphics2D graphics)
+	{
+		final TearsConfigSnapshot config = configCache.get();
+		final TearsStateSnapshot state = plugin.getState();
+		if (!(config.showProjection() || config.showNextBlue() || config.showRouteAdvice()) || state.getMaxTicks() == 0)
+		{
+			return null;
+		}
+
+		if (state != builtState || config != builtConfig)
+		{
+			builtState = state;
+			builtConfig = config;
+			buildPanel(config, state);
+		}
+
+		return panelComponent.getChildren().size() > 1 ? panelComponent.render(graphics) : null;
+	}
+
+	private void buildPanel(TearsConfigSnapshot config, TearsStateSnapshot state)
+	{
+		final List<LayoutableRenderableEntity> children = panelComponent.getChildren();
+		children.clear();
+		children.add(TitleComponent.builder()
+			.text("Tears of Guthix")
+			.color(Color.YELLOW)
+			.build());
+
+		if (config.showProjection() && state.getCountedTicks() > 0)
+		{
+			final long projection = Math.round(state.getProjection());
+			final long margin = Math.round(state.getProjectionMargin());
+			children.add(LineComponent.builder()
+				.left("Projected:")
+				.right(margin == 0 ? Long.toString(projection) : projection + " +/- " + margin)
+				.build());
+			children.add(LineComponent.builder()
+				.left("Recent rate:")
+				.right(String.format("%.2f / tick", state.getWindowRate()))
+				.build());
+			children.add(LineComponent.builder()
+				.left("On blue:")
+				.right(state.getBluePercent() + "%")
+				.build());
+		}
+
+		if (state.getPlayerX() == -1)
+		{
+			return;
+		}
+
+		if (config.showNextBlue() && state.getPredictedVein() >= 0)
+		{
+			final int vein = state.getPredictedVein();
+			final int ticks = state.getPredictedTick() - state.getTick();
+			children.add(LineComponent.builder()
+				.left("Next blue:")
+				.right(describeOffset(TearsVeinIndex.getWorldX(vein) - state.getPlayerX(),
+					TearsVeinIndex.getWorldY(vein) - state.getPlayerY())
+					+ (ticks <= 0 ? ", now" : ", " + ticks + "t"))
+				.rightColor(Color.CYAN)
+				.build());
+		}
+
+		if (config.showRouteAdvice() && state.getRouteTile() >= 0)
+		{
+			final int tile = state.getRouteTile();
+			final int dx = TearsTileHeatmap.getWorldX(tile) - state.getPlayerX();
+			final int dy = TearsTileHeatmap.getWorldY(tile) - state.getPlayerY();
+			children.add(LineComponent.builder()
+				.left("Go to:")
+				.right(dx == 0 && dy == 0 ? "Stay" : describeOffset(dx, dy))
+				.rightColor(Color.GREEN)
+				.build());
+		}
+	}
+
+	private static String describeOffset(int dx, int dy)
+	{
+		final StringBuilder sb = new StringBuilder();
+		if (dx != 0)
+		{
+			sb.append(Math.abs(dx)).append(dx > 0 ? "E" : "W");
+		}
+		if (dy != 0)
+		{
+			if (sb.length() > 0)
+			{
+				sb.append(' ');
+			}
+			sb.append(Math.abs(dy)).append(dy > 0 ? "N" : "S");
+		}
+		return sb.length() == 0 ? "here" : sb.toString();
+	}
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.ScheduledExecutorService;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.client.RuneLite;
+
+/**
+ * Records everything the plugin reads from the client while in the cave, so the session
+ * can be replayed later without a client. Records are kept in memory while playing and
+ * written out on a background thread once the recording stops.
+ * <p>
+ * The file starts with {@link #MAGIC} and {@link #VERSION}, then holds a sequence of records,
+ * each starting with a type byte:
+ * <ul>
+ * <li>{@link #RECORD_TICK}: int tick count, short ticks left (5099), short tears collected (455),
+ * byte collecting (453), short x, short y, byte plane</li>
+ * <li>{@link #RECORD_VEIN_SPAWNED} and {@link #RECORD_VEIN_DESPAWNED}: short x, short y, byte plane,
+ * short object id</li>
+ * </ul>
+ */
+@Slf4j
+@Singleton
+class TearsInputRecorder
+{
+	static final int MAGIC = 0x544F4749;
+	static final short VERSION = 1;
+
+	static final byte RECORD_TICK = 1;
+	static final byte RECORD_VEIN_SPAWNED = 2;
+	static final byte RECORD_VEIN_DESPAWNED = 3;
+
+	static final File RECORDINGS_DIR = new File(RuneLite.RUNELITE_DIR, "improved-tears" + File.separator + "recordings");
+	static final String FILE_EXTENSION = ".togr";
+
+	private static final int INITIAL_BUFFER_SIZE = 16 * 1024;
+
+	private final ScheduledExecutorService executor;
+
+	private ByteArrayOutputStream buffer;
+	private DataOutputStream out;
+
+	@Inject
+	TearsInputRecorder(ScheduledExecutorService executor)
+	{
+		this.executor = executor;
+	}
+
+	boolean isRecording()
+	{
+		return out != null;
+	}
+
+	void start()
+	{
+		if (isRecording())
+		{
+			return;
+		}
+
+		buffer = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+		out = new DataOutputStream(buffer);
+		try
+		{
+			out.writeInt(MAGIC);
+			out.writeShort(VERSION);
+		}
+		catch (IOException e)
+		{
+			// Can't happen writing to memory
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Stops recording and writes what was recorded to a new file in the background.
+	 */
+	void stop()
+	{
+		if (!isRecording())
+		{
+			return;
+		}
+
+		final ByteArrayOutputStream recorded = buffer;
+		buffer = null;
+		out = null;
+
+		final File file = new File(RECORDINGS_DIR,
+			new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss").format(new Date()) + FILE_EXTENSION);
+		executor.execute(() ->
+		{
+			if (!RECORDINGS_DIR.exists() && !RECORDINGS_DIR.mkdirs())
+			{
+				log.warn("Unable to create recordings directory {}", RECORDINGS_DIR);
+				return;
+			}
+
+			try (OutputStream fileOut = new FileOutputStream(file))
+			{
+				recorded.writeTo(fileOut);
+			}
+			catch (IOException e)
+			{
+				log.warn("Unable to write recording {}", file, e);
+			}
+		});
+	}
+
+	void recordTick(int tickCount, int ticksLeft, int tearsCollected, boolean collecting, int x, int y, int plane)
+	{
+		try
+		{
+			out.writeByte(RECORD_TICK);
+			out.writeInt(tickCount);
+			out.writeShort(ticksLeft);
+			out.writeShort(tearsCollected);
+			out.writeByte(collecting ? 1 : 0);
+			out.writeShort(x);
+			out.writeShort(y);
+			out.writeByte(plane);
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	void recordVein(boolean spawned, int x, int y, int plane, int objectId)
+	{
+		try
+		{
+			out.writeByte(spawned ? RECORD_VEIN_SPAWNED : RECORD_VEIN_DESPAWNED);
+			out.writeShort(x);
+			out.writeShort(y);
+			out.writeByte(plane);
+			out.writeShort(objectId);
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+}
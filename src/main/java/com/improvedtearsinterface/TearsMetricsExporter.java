@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.client.RuneLite;
+import net.runelite.client.callback.ClientThread;
+
+/**
+ * Counts games, tears and the plugin's own timings, and periodically writes them out in the
+ * Prometheus text format for a node_exporter textfile collector or similar to pick up. Counting and
+ * formatting are done on the client thread, which also records the timings, and only the finished
+ * text is handed to the executor to write. With no other thread touching them, the counters are plain
+ * fields rather than concurrent cells.
+ * <p>
+ * Every series has an account label, and each account gets its own file, so the files of many
+ * clients can be collected from one directory. The counters start over when the account changes.
+ */
+@Slf4j
+@Singleton
+class TearsMetricsExporter
+{
+	static final File METRICS_DIR = new File(RuneLite.RUNELITE_DIR, "improved-tears" + File.separator + "metrics");
+
+	private static final long WRITE_INTERVAL_SECONDS = 15;
+	private static final TearCollectingState[] STATES = TearCollectingState.values();
+	private static final PerformanceMetric[] METRICS = PerformanceMetric.values();
+	private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+	private final ScheduledExecutorService executor;
+	private final ClientThread clientThread;
+	private final TearsPerformanceMonitor performanceMonitor;
+	private final TearsWatchdog watchdog;
+
+	// Counters of the current account, only used on the client thread
+	private long sessions = 0;
+	private long sessionTears = 0;
+	private long tearsGained = 0;
+	private long tearsLost = 0;
+	private final long[] stateTicks = new long[STATES.length];
+	private long lastSessionTears = 0;
+
+	private String account;
+	private volatile ScheduledFuture<?> writeFuture;
+
+	@Inject
+	TearsMetricsExporter(ScheduledExecutorService executor, ClientThread clientThread,
+		TearsPerformanceMonitor performanceMonitor, TearsWatchdog watchdog)
+	{
+		this.executor = executor;
+		this.clientThread = clientThread;
+		this.performanceMonitor = performanceMonitor;
+		this.watchdog = watchdog;
+	}
+
+	void setEnabled(boolean enabled)
+	{
+		if (enabled && writeFuture == null)
+		{
+			writeFuture = executor.scheduleWithFixedDelay(() -> clientThread.invokeLater(this::write),
+				WRITE_INTERVAL_SECONDS, WRITE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+		}
+		else if (!enabled && writeFuture != null)
+		{
+			writeFuture.cancel(false);
+			writeFuture = null;
+			clientThread.invoke(this::write);
+		}
+	}
+
+	void setAccount(String account)
+	{
+		if (account.equals(this.account))
+		{
+			return;
+		}
+
+		// What was counted so far belongs to the previous account, so it gets written out before starting over
+		if (writeFuture != null)
+		{
+			write();
+		}
+
+		this.account = account;
+		sessions = 0;
+		sessionTears = 0;
+		tearsGained = 0;
+		tearsLost = 0;
+		Arrays.fill(stateTicks, 0);
+		lastSessionTears = 0;
+	}
+
+	void recordTick(int tearsDiff, TearCollectingState state)
+	{
+		stateTicks[state.ordinal()]++;
+		if (tearsDiff > 0)
+		{
+			tearsGained += tearsDiff;
+		}
+		else if (tearsDiff < 0 && state == TearCollectingState.GREEN_VEIN)
+		{
+			tearsLost -= tearsDiff;
+		}
+	}
+
+	void recordSession(int tears)
+	{
+		sessions++;
+		sessionTears += tears;
+		lastSessionTears = tears;
+	}
+
+	/**
+	 * Formats the metrics of the current account, to be called on the client thread, and writes them on the executor.
+	 */
+	private void write()
+	{
+		final String account = this.account;
+		if (account == null)
+		{
+			return;
+		}
+
+		final String text = format(account.replace("\\", "\\\\").replace("\"", "\\\""));
+		executor.execute(() -> writeFile(account, text));
+	}
+
+	private void writeFile(String account, String text)
+	{
+		if (!METRICS_DIR.exists() && !METRICS_DIR.mkdirs())
+		{
+			log.warn("Unable to create metrics directory {}", METRICS_DIR);
+			return;
+		}
+
+		final String key = account.toLowerCase().replaceAll("[^a-z0-9_-]", "_");
+		final File file = new File(METRICS_DIR, "tears-" + key + ".prom");
+		final File temp = new File(METRICS_DIR, file.getName() + ".tmp");
+		try
+		{
+			try (Writer out = new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8))
+			{
+				out.write(text);
+			}
+			// The collector must never see a half written file
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (IOException e)
+		{
+			log.warn("Unable to write metrics to {}", file, e);
+		}
+	}
+
+	private String format(String account)
+	{
+		final String labels = "account=\"" + account + "\"";
+		final StringBuilder sb = new StringBuilder();
+
+		header(sb, "tears_sessions_total", "counter", "Completed Tears of Guthix games.");
+		sample(sb, "tears_sessions_total", labels, sessions);
+		header(sb, "tears_session_tears_total", "counter", "Tears collected over all completed games.");
+		sample(sb, "tears_session_tears_total", labels, sessionTears);
+		header(sb, "tears_last_session_tears", "gauge", "Tears collected in the last completed game.");
+		sample(sb, "tears_last_session_tears", labels, lastSessionTears);
+		header(sb, "tears_gained_total", "counter", "Tears gained from blue veins.");
+		sample(sb, "tears_gained_total", labels, tearsGained);
+		header(sb, "tears_lost_total", "counter", "Tears lost to green veins.");
+		sample(sb, "tears_lost_total", labels, tearsLost);
+
+		header(sb, "tears_state_ticks_total", "counter", "Minigame ticks spent in each collecting state.");
+		for (TearCollectingState state : STATES)
+		{
+			sample(sb, "tears_state_ticks_total", labels + ",state=\"" + state.name().toLowerCase() + "\"",
+				stateTicks[state.ordinal()]);
+		}
+
+		header(sb, "tears_degradation_level", "gauge", "Steps of optional work currently turned off under load, 0 for none.");
+		sample(sb, "tears_degradation_level", labels, watchdog.getShedCount());
+
+		header(sb, "tears_plugin_duration_seconds", "summary", "Time the plugin spends on its tick and render paths.");
+		for (PerformanceMetric metric : METRICS)
+		{
+			final LatencyHistogram histogram = performanceMonitor.getHistogram(metric);
+			final String metricLabels = labels + ",metric=\"" + metric.name().toLowerCase() + "\"";
+			for (double quantile : QUANTILES)
+			{
+				sample(sb, "tears_plugin_duration_seconds", metricLabels + ",quantile=\"" + quantile + "\"",
+					histogram.getPercentile(quantile) / 1e9);
+			}
+			sample(sb, "tears_plugin_duration_seconds_sum", metricLabels, histogram.getTotal() / 1e9);
+			sample(sb, "tears_plugin_duration_seconds_count", metricLabels, histogram.getCount());
+		}
+
+		return sb.toString();
+	}
+
+	private static void header(StringBuilder sb, String name, String type, String help)
+	{
+		sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+	}
+
+	private static void sample(StringBuilder sb, String name, String labels, long value)
+	{
+		sb.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+	}
+
+	private static void sample(StringBuilder sb, String name, String labels, double value)
+	{
+		sb.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import javax.inject.Inject;
+import net.runelite.client.ui.overlay.Overlay;
+import net.runelite.client.ui.overlay.OverlayPosition;
+import net.runelite.client.ui.overlay.components.LineComponent;
+import net.runelite.client.ui.overlay.components.PanelComponent;
+import net.runelite.client.ui.overlay.components.TitleComponent;
+
+class TearsPerformanceOverlay extends Overlay
+{
+	private static final int PANEL_WIDTH = 190;
+
+	private final TearsPerformanceMonitor monitor;
+	private final TearsTickMonitor tickMonitor;
+	private final TearsWatchdog watchdog;
+	private final TearsConfigCache configCache;
+
+	private final PanelComponent panelComponent = new PanelComponent();
+
+	@Inject
+	TearsPerformanceOverlay(TearsPerformanceMonitor monitor, TearsTickMonitor tickMonitor, TearsWatchdog watchdog,
+		TearsConfigCache configCache)
+	{
+		setPosition(OverlayPosition.TOP_LEFT);
+		this.monitor = monitor;
+		this.tickMonitor = tickMonitor;
+		this.watchdog = watchdog;
+		this.configCache = configCache;
+		panelComponent.setPreferredSize(new Dimension(PANEL_WIDTH, 0));
+	}
+
+	@Override
+	public Dimension render(Graphics2D graphics)
+	{
+		if (!configCache.get().showPerformanceStats())
+		{
+			return null;
+		}
+
+		panelComponent.getChildren().clear();
+		panelComponent.getChildren().add(TitleComponent.builder()
+			.text("Tears Timings (us)")
+			.color(Color.YELLOW)
+			.build());
+		panelComponent.getChildren().add(LineComponent.builder()
+			.right("p50 / p99 / max")
+			.build());
+
+		for (PerformanceMetric metric : PerformanceMetric.values())
+		{
+			final LatencyHistogram histogram = monitor.getHistogram(metric);
+			panelComponent.getChildren().add(LineComponent.builder()
+				.left(metric.getName())
+				.right(histogram.getCount() == 0 ? "-" : String.format("%s / %s / %s",
+					toMicros(histogram.getPercentile(0.5)),
+					toMicros(histogram.getPercentile(0.99)),
+					toMicros(histogram.getMax())))
+				.build());
+		}
+
+		if (tickMonitor.getSampleCount() > 0)
+		{
+			panelComponent.getChildren().add(LineComponent.builder()
+				.left("Tick interval (ms)")
+				.right(String.format("%.0f +/- %.0f", tickMonitor.getMeanInterval() / 1e6, tickMonitor.getJitter() / 1e6))
+				.build());
+			panelComponent.getChildren().add(LineComponent.builder()
+				.left("Late ticks")
+				.right(tickMonitor.getLateTicks() + " / " + tickMonitor.getSampleCount())
+				.rightColor(tickMonitor.getLateTicks() > 0 ? Color.ORANGE : Color.WHITE)
+				.build());
+		}
+
+		if (watchdog.isEnabled())
+		{
+			addDegradationLine("Tick shedding", watchdog.getTickLevel());
+			addDegradationLine("Frame shedding", watchdog.getFrameLevel());
+		}
+
+		return panelComponent.render(graphics);
+	}
+
+	private void addDegradationLine(String name, DegradationLevel level)
+	{
+		panelComponent.getChildren().add(LineComponent.builder()
+			.left(name)
+			.right(level.getName())
+			.rightColor(level == DegradationLevel.NONE ? Color.WHITE : Color.ORANGE)
+			.build());
+	}
+
+	private static String toMicros(long nanos)
+	{
+		return String.format("%.1f", nanos / 1000.0);
+	}
+}
@@ -27,11 +27,15 @@ package com.improvedtearsinterface;
 
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
 import java.awt.Graphics2D;
+import java.awt.Point;
 import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
 import java.text.DecimalFormat;
-import java.time.Duration;
-import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import net.runelite.api.Client;
 import net.runelite.api.widgets.Widget;
@@ -43,34 +47,70 @@ import net.runelite.client.ui.overlay.components.TextComponent;
 class TearsPlusMinusOverlay extends Overlay
 {
 	private static final double HEIGHTS = 4.0;
-	private static final long DURATION = 2000;
+	static final long DURATION = 2000;
+	private static final long DURATION_NANOS = TimeUnit.MILLISECONDS.toNanos(DURATION);
 	private static final int START_OFFSET_X = 10;
 	private static final int START_OFFSET_Y = 0;
 
+	// Deltas from -MAX_SPRITE_DELTA to MAX_SPRITE_DELTA get pre-rendered, anything else is drawn as text
+	private static final int MAX_SPRITE_DELTA = 9;
+
 	private final Client client;
 	private final ImprovedTearsInterfacePlugin plugin;
-	private final ImprovedTearsInterfaceConfig config;
+	private final TearsConfigCache configCache;
+	private final TearsPerformanceMonitor performanceMonitor;
+	private final TearsWatchdog watchdog;
+	private final TearsClock clock;
 
 	private final TextComponent textComponent = new TextComponent();
+	private final Point textPosition = new Point();
 
 	private final DecimalFormat fmt = new DecimalFormat("+#;-#");
 
+	private final BufferedImage[] sprites = new BufferedImage[MAX_SPRITE_DELTA * 2 + 1];
+	private Font spriteFont;
+	private int spriteAscent;
+
 	@Inject
-	TearsPlusMinusOverlay(Client client, ImprovedTearsInterfacePlugin plugin, ImprovedTearsInterfaceConfig config)
+	TearsPlusMinusOverlay(Client client, ImprovedTearsInterfacePlugin plugin, TearsConfigCache configCache,
+		TearsPerformanceMonitor performanceMonitor, TearsWatchdog watchdog, TearsClock clock)
 	{
 		setPosition(OverlayPosition.DYNAMIC);
 		setLayer(OverlayLayer.ABOVE_WIDGETS);
 		this.client = client;
 		this.plugin = plugin;
-		this.config = config;
+		this.configCache = configCache;
+		this.performanceMonitor = performanceMonitor;
+		this.watchdog = watchdog;
+		this.clock = clock;
 	}
 
 	@Override
 	public Dimension render(Graphics2D graphics)
 	{
-		if (!config.showPlusMinusOnCollect() || plugin.getDeltaInstantQueue().isEmpty())
+		final long start = performanceMonitor.start();
+		final long watchdogStart = watchdog.start();
+		renderDeltas(graphics);
+		watchdog.recordFrame(watchdogStart);
+		performanceMonitor.record(PerformanceMetric.PLUS_MINUS_RENDER, start);
+		return null;
+	}
+
+	private void renderDeltas(Graphics2D graphics)
+	{
+		final TearsStateSnapshot state = plugin.getState();
+		if (!configCache.get().showPlusMinusOnCollect() || state.getDeltaCount() == 0
+			|| watchdog.isShedding(DegradationLevel.NO_ANIMATION))
 		{
-			return null;
+			return;
+		}
+
+		// Entries are in order, if the newest one is done animating then all of them are
+		final long now = clock.nanoTime();
+		final int newest = state.getDeltaCount() - 1;
+		if (now - state.getDeltaTime(newest) > DURATION_NANOS)
+		{
+			return;
 		}
 
 		Widget counter = client.getWidget(ImprovedTearsInterfacePlugin.TEARS_WIDGET_GROUP_ID,
@@ -83,30 +123,91 @@ class TearsPlusMinusOverlay extends Overlay
 			final int y = bounds.y + bounds.height + START_OFFSET_Y;
 			final int h = bounds.height;
 
-			Instant now = Instant.now();
+			// Skip past the entries that are done animating
+			int i = 0;
+			while (i < newest && now - state.getDeltaTime(i) > DURATION_NANOS)
+			{
+				i++;
+			}
 
-			for (DeltaInstantPair dip : plugin.getDeltaInstantQueue())
+			for (; i <= newest; i++)
 			{
-				int delta = dip.getDelta();
+				int delta = state.getDelta(i);
 				if (delta == 0)
 				{
 					continue;
 				}
 
-				final double ratio = (double)Duration.between(dip.getTime(), now).toMillis() / DURATION;
+				final double ratio = (double) (now - state.getDeltaTime(i)) / DURATION_NANOS;
 				if (ratio < 0 || ratio > 1)
 				{
 					continue;
 				}
 
-				textComponent.setText(fmt.format(delta));
-				textComponent.setColor(delta > 0 ? Color.GREEN : Color.RED);
-				textComponent.setOutline(false);
-				textComponent.setPosition(
-					new java.awt.Point(x, y - (int)(ratio * h * HEIGHTS)));
-				textComponent.render(graphics);
+				final int textY = y - (int) (ratio * h * HEIGHTS);
+				final BufferedImage sprite = getSprite(graphics, delta);
+				if (sprite != null)
+				{
+					graphics.drawImage(sprite, x, textY - spriteAscent, null);
+				}
+				else
+				{
+					textComponent.setText(fmt.format(delta));
+					textComponent.setColor(getColor(delta));
+					textComponent.setOutline(false);
+					textPosition.setLocation(x, textY);
+					textComponent.setPosition(textPosition);
+					textComponent.render(graphics);
+				}
 			}
 		}
-		return null;
+	}
+
+	private BufferedImage getSprite(Graphics2D graphics, int delta)
+	{
+		if (delta < -MAX_SPRITE_DELTA || delta > MAX_SPRITE_DELTA)
+		{
+			return null;
+		}
+
+		final Font font = graphics.getFont();
+		if (!font.equals(spriteFont))
+		{
+			Arrays.fill(sprites, null);
+			spriteFont = font;
+			spriteAscent = graphics.getFontMetrics(font).getAscent();
+		}
+
+		final int index = delta + MAX_SPRITE_DELTA;
+		if (sprites[index] == null)
+		{
+			sprites[index] = createSprite(graphics, fmt.format(delta), getColor(delta));
+		}
+		return sprites[index];
+	}
+
+	/**
+	 * Rasterises the text the same way a non-outlined TextComponent draws it, shadow included.
+	 */
+	private BufferedImage createSprite(Graphics2D graphics, String text, Color color)
+	{
+		final FontMetrics metrics = graphics.getFontMetrics(spriteFont);
+		final BufferedImage image = new BufferedImage(
+			Math.max(1, metrics.stringWidth(text) + 1), metrics.getHeight() + 1, BufferedImage.TYPE_INT_ARGB);
+
+		final Graphics2D g = image.createGraphics();
+		g.setRenderingHints(graphics.getRenderingHints());
+		g.setFont(spriteFont);
+		g.setColor(Color.BLACK);
+		g.drawString(text, 1, spriteAscent + 1);
+		g.setColor(color);
+		g.drawString(text, 0, spriteAscent);
+		g.dispose();
+		return image;
+	}
+
+	private static Color getColor(int delta)
+	{
+		return delta > 0 ? Color.GREEN : Color.RED;
 	}
 }
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface;
+
+import java.util.Arrays;
+import javax.inject.Singleton;
+import lombok.Getter;
+
+/**
+ * Measures how many ticks it takes the player to react when the vein they are standing still
+ * collecting from stops being blue, reacting meaning moving or starting or stopping collecting.
+ * Fed once per tick and kept in a fixed histogram, so it never allocates.
+ */
+@Singleton
+class TearsReactionTracker
+{
+	// Reactions this slow or slower all go in the last bucket
+	static final int MAX_TICKS = 10;
+
+	// A reaction is seen on the tick after the change at the earliest, so bucket i holds reactions of i + 1 ticks
+	private final int[] histogram = new int[MAX_TICKS];
+	@Getter
+	private int reactions = 0;
+	private int totalTicks = 0;
+	// Tears lost to green veins between the vein changing and the player reacting
+	@Getter
+	private int tearsLost = 0;
+
+	private boolean waiting = false;
+	private int changeTick = 0;
+
+	private TearCollectingState lastState = TearCollectingState.NOT_COLLECTING;
+	private boolean lastCollecting = false;
+	private int lastX = -1;
+	private int lastY = -1;
+
+	void reset()
+	{
+		Arrays.fill(histogram, 0);
+		reactions = 0;
+		totalTicks = 0;
+		tearsLost = 0;
+		waiting = false;
+		lastState = TearCollectingState.NOT_COLLECTING;
+		lastCollecting = false;
+		lastX = -1;
+		lastY = -1;
+	}
+
+	void update(int tick, TearCollectingState state, boolean collecting, int x, int y, int tearsDiff)
+	{
+		if (waiting)
+		{
+			if (x != lastX || y != lastY || collecting != lastCollecting)
+			{
+				final int ticks = tick - changeTick;
+				histogram[Math.min(ticks, MAX_TICKS) - 1]++;
+				reactions++;
+				totalTicks += ticks;
+				waiting = false;
+			}
+			else if (state == TearCollectingState.BLUE_VEIN)
+			{
+				// It went back to blue before the player did anything, nothing to react to anymore
+				waiting = false;
+			}
+			else if (tearsDiff < 0)
+			{
+				tearsLost -= tearsDiff;
+			}
+		}
+		else if (lastState == TearCollectingState.BLUE_VEIN
+			&& (state == TearCollectingState.GREEN_VEIN || state == TearCollectingState.EMPTY_VEIN)
+			&& x == lastX && y == lastY && collecting && lastCollecting)
+		{
+			waiting = true;
+			changeTick = tick;
+			if (tearsDiff < 0)
+			{
+				tearsLost -= tearsDiff;
+			}
+		}
+
+		lastState = state;
+		lastCollecting = collecting;
+		lastX = x;
+		lastY = y;
+	}
+
+	/**
+	 * Gets how many reactions took the given number of ticks, from 1 to {@link #MAX_TICKS}.
+	 */
+	int getCount(int ticks)
+	{
+		return histogram[ticks - 1];
+	}
+
+	double getAverageTicks()
+	{
+		return reactions == 0 ? 0 : totalTicks / (double) reactions;
+	}
+
+	/**
+	 * Gets the median reaction time in ticks, counting the last bucket as {@link #MAX_TICKS}.
+	 */
+	int getMedianTicks()
+	{
+		int seen = 0;
+		for (int ticks = 1; ticks <= MAX_TICKS; ticks++)
+		{
+			seen += histogram[ticks - 1];
+			if (seen * 2 >= reactions)
+			{
+				return ticks;
+			}
+		}
+		return MAX_TICKS;
+	}
+}
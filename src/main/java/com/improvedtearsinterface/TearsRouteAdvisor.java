@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface;
+
+import static com.improvedtearsinterface.ImprovedTearsInterfacePlugin.TEARS_WP_PLANE;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import lombok.Getter;
+import net.runelite.api.Client;
+import net.runelite.api.CollisionData;
+import net.runelite.api.CollisionDataFlag;
+import net.runelite.api.Constants;
+
+/**
+ * Suggests which vein to collect from next, weighing how long each blue vein is expected to
+ * last against how long it takes to get to it. Walking distances between every pair of tiles
+ * of the minigame area are worked out once when the cave loads, so deciding each tick only
+ * takes table lookups. Tiles are indexed the same way as in {@link TearsTileHeatmap}.
+ */
+@Singleton
+class TearsRouteAdvisor
+{
+	private static final int TILE_COUNT = TearsTileHeatmap.TILE_COUNT;
+	private static final int UNREACHABLE = Byte.MAX_VALUE;
+
+	// Don't switch targets for less than this many ticks of gain
+	private static final int SWITCH_THRESHOLD = 2;
+
+	// The area tiles every vein can be collected from, the opposite of TearsVeinIndex.getAdjacentVeinState
+	private static final int[][] SPOTS = new int[TearsVeinIndex.GRID_SIZE][];
+
+	static
+	{
+		final int[] spots = new int[3];
+		for (int vein = 0; vein < TearsVeinIndex.GRID_SIZE; vein++)
+		{
+			final int x = TearsVeinIndex.getWorldX(vein);
+			final int y = TearsVeinIndex.getWorldY(vein);
+			int count = 0;
+			for (int spot : new int[]{
+				TearsTileHeatmap.getIndex(x - 1, y, TEARS_WP_PLANE),
+				TearsTileHeatmap.getIndex(x, y - 1, TEARS_WP_PLANE),
+				TearsTileHeatmap.getIndex(x, y + 1, TEARS_WP_PLANE)})
+			{
+				if (spot >= 0)
+				{
+					spots[count++] = spot;
+				}
+			}
+			SPOTS[vein] = Arrays.copyOf(spots, count);
+		}
+	}
+
+	private final Client client;
+	private final TearsVeinIndex veinIndex;
+	private final TearsVeinTracker veinTracker;
+
+	// distances[from * TILE_COUNT + to], in tiles
+	private final byte[] distances = new byte[TILE_COUNT * TILE_COUNT];
+	private final ArrayDeque<Integer> queue = new ArrayDeque<>(TILE_COUNT);
+
+	@Getter
+	private int targetVein = -1;
+	@Getter
+	private int targetTile = -1;
+
+	@Inject
+	TearsRouteAdvisor(Client client, TearsVeinIndex veinIndex, TearsVeinTracker veinTracker)
+	{
+		this.client = client;
+		this.veinIndex = veinIndex;
+		this.veinTracker = veinTracker;
+		Arrays.fill(distances, (byte) UNREACHABLE);
+	}
+
+	/**
+	 * Works out the walking distance between every pair of tiles from the scene's collision data,
+	 * or as if the area was open if it isn't loaded. Must be called on the client thread.
+	 */
+	void rebuild()
+	{
+		final CollisionData[] maps = client.getCollisionMaps();
+		final int[][] flags = maps == null || maps[TEARS_WP_PLANE] == null ? null : maps[TEARS_WP_PLANE].getFlags();
+		for (int from = 0; from < TILE_COUNT; from++)
+		{
+			search(from, flags);
+		}
+		clearTarget();
+	}
+
+	/**
+	 * Breadth-first search over the area, moving like players do: in 8 directions, diagonally only
+	 * if both of the straight moves it cuts across are possible.
+	 */
+	private void search(int from, int[][] flags)
+	{
+		final int offset = from * TILE_COUNT;
+		Arrays.fill(distances, offset, offset + TILE_COUNT, (byte) UNREACHABLE);
+		distances[offset + from] = 0;
+		queue.clear();
+		queue.add(from);
+		while (!queue.isEmpty())
+		{
+			final int tile = queue.poll();
+			final int x = TearsTileHeatmap.getWorldX(tile);
+			final int y = TearsTileHeatmap.getWorldY(tile);
+			for (int dx = -1; dx <= 1; dx++)
+			{
+				for (int dy = -1; dy <= 1; dy++)
+				{
+					final int next = TearsTileHeatmap.getIndex(x + dx, y + dy, TEARS_WP_PLANE);
+					if (next < 0 || distances[offset + next] != UNREACHABLE || !canMove(flags, x, y, dx, dy))
+					{
+						continue;
+					}
+					distances[offset + next] = (byte) (distances[offset + tile] + 1);
+					queue.add(next);
+				}
+			}
+		}
+	}
+
+	private boolean canMove(int[][] flags, int x, int y, int dx, int dy)
+	{
+		if (dx != 0 && dy != 0)
+		{
+			return canMove(flags, x, y, dx, 0) && canMove(flags, x, y, 0, dy)
+				&& canMove(flags, x + dx, y, 0, dy) && canMove(flags, x, y + dy, dx, 0);
+		}
+
+		final int from = getFlags(flags, x, y);
+		final int to = getFlags(flags, x + dx, y + dy);
+		if ((to & CollisionDataFlag.BLOCK_MOVEMENT_FULL) != 0)
+		{
+			return false;
+		}
+		if (dx > 0)
+		{
+			return (from & CollisionDataFlag.BLOCK_MOVEMENT_EAST) == 0;
+		}
+		if (dx < 0)
+		{
+			return (from & CollisionDataFlag.BLOCK_MOVEMENT_WEST) == 0;
+		}
+		if (dy > 0)
+		{
+			return (from & CollisionDataFlag.BLOCK_MOVEMENT_NORTH) == 0;
+		}
+		return (from & CollisionDataFlag.BLOCK_MOVEMENT_SOUTH) == 0;
+	}
+
+	private int getFlags(int[][] flags, int x, int y)
+	{
+		final int sceneX = x - client.getBaseX();
+		final int sceneY = y - client.getBaseY();
+		if (flags == null || sceneX < 0 || sceneY < 0 || sceneX >= Constants.SCENE_SIZE || sceneY >= Constants.SCENE_SIZE)
+		{
+			return 0;
+		}
+		return flags[sceneX][sceneY];
+	}
+
+	/**
+	 * Gets the walking distance in tiles between two tiles of the area.
+	 */
+	int getDistance(int from, int to)
+	{
+		return distances[from * TILE_COUNT + to];
+	}
+
+	void clearTarget()
+	{
+		targetVein = -1;
+		targetTile = -1;
+	}
+
+	/**
+	 * Picks the vein to go to from the player's tile. Blue veins are worth the ticks they have left
+	 * once the player gets there, and the vein expected to turn blue next is worth a whole blue lifetime
+	 * minus the time spent either waiting for it or arriving late. Walking time assumes running.
+	 */
+	void update(int x, int y, int plane, int tick)
+	{
+		final int from = TearsTileHeatmap.getIndex(x, y, plane);
+		if (from < 0)
+		{
+			clearTarget();
+			return;
+		}
+
+		final double blueLifetime = veinTracker.getAverageLifetime(TearCollectingState.BLUE_VEIN);
+		final int predicted = veinTracker.getPredictedIndex();
+
+		int bestVein = -1;
+		int bestTile = -1;
+		int bestValue = Integer.MIN_VALUE;
+		int currentValue = Integer.MIN_VALUE;
+		for (int vein = 0; vein < TearsVeinIndex.GRID_SIZE; vein++)
+		{
+			final boolean blue = veinIndex.getState(vein) == TearCollectingState.BLUE_VEIN;
+			if (!blue && (vein != predicted || blueLifetime == 0))
+			{
+				continue;
+			}
+
+			final int tile = getClosestSpot(from, vein);
+			if (tile < 0)
+			{
+				continue;
+			}
+
+			final int walkTicks = (getDistance(from, tile) + 1) / 2;
+			final int value;
+			if (blue)
+			{
+				final int remaining = veinTracker.getExpectedRemaining(vein, tick);
+				// Until lifetimes are learned just go for the closest one
+				value = remaining < 0 ? -walkTicks : remaining - walkTicks;
+			}
+			else
+			{
+				value = (int) Math.round(blueLifetime) - Math.abs(walkTicks - (veinTracker.getPredictedTick() - tick));
+			}
+
+			if (vein == targetVein)
+			{
+				currentValue = value;
+			}
+			if (value > bestValue)
+			{
+				bestVein = vein;
+				bestTile = tile;
+				bestValue = value;
+			}
+		}
+
+		if (bestVein != targetVein && currentValue != Integer.MIN_VALUE && bestValue - currentValue < SWITCH_THRESHOLD)
+		{
+			targetTile = getClosestSpot(from, targetVein);
+			return;
+		}
+		targetVein = bestVein;
+		targetTile = bestTile;
+	}
+
+	private int getClosestSpot(int from, int vein)
+	{
+		int closest = -1;
+		int closestDistance = UNREACHABLE;
+		for (int spot : SPOTS[vein])
+		{
+			final int distance = getDistance(from, spot);
+			if (distance < closestDistance)
+			{
+				closest = spot;
+				closestDistance = distance;
+			}
+		}
+		return closest;
+	}
+}
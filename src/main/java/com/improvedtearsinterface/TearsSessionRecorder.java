@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.ScheduledExecutorService;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.client.RuneLite;
+
+/**
+ * Writes one fixed-width record per tick of a game to a memory-mapped file. The file is
+ * created and mapped on a background thread when the game starts, after which recording a
+ * tick is just a few stores into the mapping from the client thread. Ticks recorded before the
+ * mapping is ready are held in memory and copied into it once it is.
+ * <p>
+ * Files start with a {@value #HEADER_SIZE} byte header: int {@link #MAGIC}, short {@link #VERSION},
+ * short {@link #RECORD_SIZE}, int number of records, int max ticks of the game. Records follow,
+ * each holding int tick count, short displayed ticks left, short tears collected,
+ * byte tears diff and byte {@link TearCollectingState} ordinal, or'd with {@link #COUNTED_FLAG} on the
+ * ticks that count towards the game's statistics. The file is always
+ * {@link #FILE_SIZE} bytes long, the record count in the header says how many are valid.
+ */
+@Slf4j
+@Singleton
+class TearsSessionRecorder
+{
+	static final int MAGIC = 0x544F4753;
+	static final short VERSION = 2;
+	static final int HEADER_SIZE = 16;
+	static final int RECORD_SIZE = 10;
+	static final int MAX_RECORDS = 2048;
+	// Ticks that can be held while the file is being opened, far more than opening ever takes
+	static final int PENDING_RECORDS = 64;
+	static final int FILE_SIZE = HEADER_SIZE + RECORD_SIZE * MAX_RECORDS;
+
+	static final int COUNT_OFFSET = 8;
+	static final int MAX_TICKS_OFFSET = 12;
+	static final int COUNTED_FLAG = 0x80;
+
+	static final File SESSIONS_DIR = new File(RuneLite.RUNELITE_DIR, "improved-tears" + File.separator + "sessions");
+	static final String FILE_EXTENSION = ".togs";
+
+	private final ScheduledExecutorService executor;
+
+	private Session session;
+
+	private static class Session
+	{
+		private FileChannel channel;
+		private volatile MappedByteBuffer buffer;
+		// Only touched on the client thread, or on the background thread once the session is finished
+		private final ByteBuffer pending = ByteBuffer.allocate(PENDING_RECORDS * RECORD_SIZE);
+		private boolean flushed = false;
+		// Set once ticks start being dropped because the file never got opened
+		private boolean dropping = false;
+		private int count = 0;
+
+		/**
+		 * Copies the ticks recorded before the mapping was ready into it.
+		 */
+		private void flush(MappedByteBuffer buffer)
+		{
+			final int pendingCount = Math.min(count, PENDING_RECORDS);
+			for (int i = 0; i < pendingCount * RECORD_SIZE; i++)
+			{
+				buffer.put(HEADER_SIZE + i, pending.get(i));
+			}
+			buffer.putInt(COUNT_OFFSET, pendingCount);
+			count = pendingCount;
+			flushed = true;
+		}
+	}
+
+	@Inject
+	TearsSessionRecorder(ScheduledExecutorService executor)
+	{
+		this.executor = executor;
+	}
+
+	/**
+	 * Starts recording a new game, finishing the previous one if there was any.
+	 */
+	void start(int maxTicks)
+	{
+		finish();
+
+		final Session newSession = new Session();
+		final File file = new File(SESSIONS_DIR,
+			new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss").format(new Date()) + FILE_EXTENSION);
+		session = newSession;
+		executor.execute(() -> open(newSession, file, maxTicks));
+	}
+
+	/**
+	 * Records a tick of the current game, as long as there is room left in the file.
+	 */
+	void record(int tickCount, int displayedTicksLeft, int tearsCollected, int tearsDiff, TearCollectingState state,
+		boolean counted)
+	{
+		final Session current = session;
+		if (current == null)
+		{
+			return;
+		}
+
+		final MappedByteBuffer buffer = current.buffer;
+		if (buffer == null)
+		{
+			// Still being opened, hold on to the tick until it is
+			if (current.count < PENDING_RECORDS)
+			{
+				put(current.pending, current.count * RECORD_SIZE, tickCount, displayedTicksLeft, tearsCollected, tearsDiff,
+					state, counted);
+				current.count++;
+			}
+			else if (!current.dropping)
+			{
+				current.dropping = true;
+				log.warn("Session file not ready after {} ticks, dropping the rest of the game", PENDING_RECORDS);
+			}
+			return;
+		}
+
+		if (!current.flushed)
+		{
+			current.flush(buffer);
+		}
+		if (current.count >= MAX_RECORDS)
+		{
+			return;
+		}
+
+		put(buffer, HEADER_SIZE + current.count * RECORD_SIZE, tickCount, displayedTicksLeft, tearsCollected, tearsDiff,
+			state, counted);
+		current.count++;
+		buffer.putInt(COUNT_OFFSET, current.count);
+	}
+
+	private static void put(ByteBuffer buffer, int position, int tickCount, int displayedTicksLeft, int tearsCollected,
+		int tearsDiff, TearCollectingState state, boolean counted)
+	{
+		buffer.putInt(position, tickCount);
+		buffer.putShort(position + 4, (short) displayedTicksLeft);
+		buffer.putShort(position + 6, (short) tearsCollected);
+		buffer.put(position + 8, (byte) Math.max(Byte.MIN_VALUE, Math.min(Byte.MAX_VALUE, tearsDiff)));
+		buffer.put(position + 9, (byte) (state.ordinal() | (counted ? COUNTED_FLAG : 0)));
+	}
+
+	void finish()
+	{
+		final Session finished = session;
+		if (finished == null)
+		{
+			return;
+		}
+
+		session = null;
+		executor.execute(() -> close(finished));
+	}
+
+	private static void open(Session session, File file, int maxTicks)
+	{
+		if (!SESSIONS_DIR.exists() && !SESSIONS_DIR.mkdirs())
+		{
+			log.warn("Unable to create sessions directory {}", SESSIONS_DIR);
+			return;
+		}
+
+		try
+		{
+			final FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+			buffer.putInt(0, MAGIC);
+			buffer.putShort(4, VERSION);
+			buffer.putShort(6, (short) RECORD_SIZE);
+			buffer.putInt(COUNT_OFFSET, 0);
+			buffer.putInt(MAX_TICKS_OFFSET, maxTicks);
+			session.channel = channel;
+			session.buffer = buffer;
+		}
+		catch (IOException e)
+		{
+			log.warn("Unable to open session file {}", file, e);
+		}
+	}
+
+	/**
+	 * Writes out and closes the session's file. The mapping itself can't be released explicitly without
+	 * going through JDK internals, so it stays until the buffer is garbage collected, which on Windows
+	 * keeps the file from being deleted or moved until then. Nothing refers to the buffer after this, so
+	 * that is usually soon.
+	 */
+	private static void close(Session session)
+	{
+		final MappedByteBuffer buffer = session.buffer;
+		session.buffer = null;
+		if (buffer != null)
+		{
+			// The game may have ended before a single tick made it into the file
+			if (!session.flushed)
+			{
+				session.flush(buffer);
+			}
+			buffer.force();
+		}
+
+		if (session.channel != null)
+		{
+			try
+			{
+				session.channel.close();
+			}
+			catch (IOException e)
+			{
+				log.warn("Unable to close session file", e);
+			}
+		}
+	}
+}
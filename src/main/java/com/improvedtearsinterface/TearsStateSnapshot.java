@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface;
+
+import lombok.Getter;
+
+/**
+ * Immutable copy of what the plugin worked out on a game tick, published for overlays to read
+ * so they never touch state the tick is in the middle of changing.
+ * <p>
+ * The arrays are never changed once published, so a tick whose deltas, veins or heatmap are the
+ * same as the previous snapshot's shares its arrays instead of copying them again.
+ */
+class TearsStateSnapshot
+{
+	private static final int[] NO_DELTAS = new int[0];
+	private static final long[] NO_TIMES = new long[0];
+	private static final byte[] NO_VEINS = new byte[TearsVeinIndex.GRID_SIZE];
+	private static final int[] NO_TILES = new int[TearsTileHeatmap.TILE_COUNT];
+	private static final TearCollectingState[] STATES = TearCollectingState.values();
+
+	static final TearsStateSnapshot EMPTY = new TearsStateSnapshot();
+
+	@Getter
+	private final int tick;
+	// Clock time the tick arrived at, and how long ticks have been taking
+	@Getter
+	private final long tickTime;
+	@Getter
+	private final long tickLength;
+	@Getter
+	private final int maxTicks;
+	@Getter
+	private final int displayedTicksLeft;
+	@Getter
+	private final int minigameStarting;
+	@Getter
+	private final boolean minigameEnding;
+	@Getter
+	private final int tearsCollected;
+	@Getter
+	private final TearCollectingState collectingState;
+
+	// Player's tile, -1 if unknown
+	@Getter
+	private final int playerX;
+	@Getter
+	private final int playerY;
+
+	// Recent tear deltas and when they happened, oldest first
+	private final int[] deltas;
+	private final long[] deltaTimes;
+	private final int deltaVersion;
+
+	// Counted ticks of the game so far, the rest of the stats are meaningless while it is 0
+	@Getter
+	private final int countedTicks;
+	@Getter
+	private final double projection;
+	@Getter
+	private final double projectionMargin;
+	@Getter
+	private final double windowRate;
+	@Getter
+	private final int bluePercent;
+
+	@Getter
+	private final int predictedVein;
+	@Getter
+	private final int predictedTick;
+	@Getter
+	private final int routeTile;
+
+	// Vein index states, as TearCollectingState ordinals, all empty unless veins are highlighted
+	private final byte[] veinStates;
+	private final int veinVersion;
+
+	// Collecting ticks and net tears per heatmap tile, this game and the account's history together,
+	// all 0 unless the heatmap is shown
+	private final int[] heatmapTicks;
+	private final int[] heatmapNet;
+	private final int heatmapVersion;
+	private final TearsTileHeatmap heatmapHistory;
+
+	private TearsStateSnapshot()
+	{
+		tick = 0;
+		tickTime = 0;
+		tickLength = 0;
+		maxTicks = 0;
+		displayedTicksLeft = 0;
+		minigameStarting = 0;
+		minigameEnding = false;
+		tearsCollected = 0;
+		collectingState = TearCollectingState.NOT_COLLECTING;
+		playerX = -1;
+		playerY = -1;
+		deltas = NO_DELTAS;
+		deltaTimes = NO_TIMES;
+		deltaVersion = -1;
+		countedTicks = 0;
+		projection = 0;
+		projectionMargin = 0;
+		windowRate = 0;
+		bluePercent = 0;
+		predictedVein = -1;
+		predictedTick = -1;
+		routeTile = -1;
+		veinStates = NO_VEINS;
+		veinVersion = -1;
+		heatmapTicks = NO_TILES;
+		heatmapNet = NO_TILES;
+		heatmapVersion = -1;
+		heatmapHistory = null;
+	}
+
+	/**
+	 * @param previous  the last published snapshot, whose arrays are reused where nothing changed
+	 * @param veins     whether to copy the vein states, for the vein highlights
+	 * @param heatmap   whether to copy the heatmap, for the heatmap overlay
+	 */
+	TearsStateSnapshot(ImprovedTearsInterfacePlugin plugin, TearsStateSnapshot previous, int tick, int playerX,
+		int playerY, TearsStatistics statistics, TearsVeinTracker veinTracker, TearsRouteAdvisor routeAdvisor,
+		TearsTickMonitor tickMonitor, TearsVeinIndex veinIndex, boolean veins, boolean heatmap)
+	{
+		this.tick = tick;
+		tickTime = tickMonitor.getTickTime();
+		tickLength = tickMonitor.getTickLength();
+		maxTicks = plugin.getMaxTicks();
+		displayedTicksLeft = plugin.getDisplayedTicksLeft();
+		minigameStarting = plugin.getMinigameStarting();
+		minigameEnding = plugin.isMinigameEnding();
+		tearsCollected = plugin.getTearsCollected();
+		collectingState = plugin.getCollectingState();
+		this.playerX = playerX;
+		this.playerY = playerY;
+
+		final DeltaRingBuffer deltaBuffer = plugin.getDeltaBuffer();
+		deltaVersion = deltaBuffer.getVersion();
+		if (deltaBuffer.isEmpty())
+		{
+			deltas = NO_DELTAS;
+			deltaTimes = NO_TIMES;
+		}
+		else if (deltaVersion == previous.deltaVersion)
+		{
+			deltas = previous.deltas;
+			deltaTimes = previous.deltaTimes;
+		}
+		else
+		{
+			deltas = new int[deltaBuffer.size()];
+			deltaTimes = new long[deltaBuffer.size()];
+			for (int i = 0; i < deltas.length; i++)
+			{
+				deltas[i] = deltaBuffer.getDelta(i);
+				deltaTimes[i] = deltaBuffer.getTime(i);
+			}
+		}
+
+		countedTicks = statistics.getTicks();
+		projection = statistics.getProjection(tearsCollected, displayedTicksLeft);
+		projectionMargin = statistics.getProjectionMargin(displayedTicksLeft);
+		windowRate = statistics.getWindowRate();
+		bluePercent = countedTicks == 0 ? 0
+			: statistics.getStateTicks(TearCollectingState.BLUE_VEIN) * 100 / countedTicks;
+
+		predictedVein = veinTracker.getPredictedIndex();
+		predictedTick = veinTracker.getPredictedTick();
+		routeTile = routeAdvisor.getTargetTile();
+
+		if (!veins)
+		{
+			veinStates = NO_VEINS;
+			veinVersion = -1;
+		}
+		else if (veinIndex.getVersion() == previous.veinVersion)
+		{
+			veinStates = previous.veinStates;
+			veinVersion = previous.veinVersion;
+		}
+		else
+		{
+			veinStates = veinIndex.copyStates();
+			veinVersion = veinIndex.getVersion();
+		}
+
+		final TearsTileHeatmap game = plugin.getGameHeatmap();
+		final TearsTileHeatmap history = plugin.getHistoryHeatmap();
+		if (!heatmap)
+		{
+			heatmapTicks = NO_TILES;
+			heatmapNet = NO_TILES;
+			heatmapVersion = -1;
+			heatmapHistory = null;
+		}
+		else if (game.getVersion() == previous.heatmapVersion && history == previous.heatmapHistory)
+		{
+			heatmapTicks = previous.heatmapTicks;
+			heatmapNet = previous.heatmapNet;
+			heatmapVersion = previous.heatmapVersion;
+			heatmapHistory = history;
+		}
+		else
+		{
+			heatmapTicks = new int[TearsTileHeatmap.TILE_COUNT];
+			heatmapNet = new int[TearsTileHeatmap.TILE_COUNT];
+			for (int i = 0; i < TearsTileHeatmap.TILE_COUNT; i++)
+			{
+				heatmapTicks[i] = game.getCollectingTicks(i);
+				heatmapNet[i] = game.getTearsGained(i) - game.getTearsLost(i);
+				if (history != null)
+				{
+					heatmapTicks[i] += history.getCollectingTicks(i);
+					heatmapNet[i] += history.getTearsGained(i) - history.getTearsLost(i);
+				}
+			}
+			heatmapVersion = game.getVersion();
+			heatmapHistory = history;
+		}
+	}
+
+	int getDeltaCount()
+	{
+		return deltas.length;
+	}
+
+	int getDelta(int i)
+	{
+		return deltas[i];
+	}
+
+	long getDeltaTime(int i)
+	{
+		return deltaTimes[i];
+	}
+
+	TearCollectingState getVeinState(int index)
+	{
+		return STATES[veinStates[index]];
+	}
+
+	int getHeatmapTicks(int index)
+	{
+		return heatmapTicks[index];
+	}
+
+	int getHeatmapNet(int index)
+	{
+		return heatmapNet[index];
+	}
+}
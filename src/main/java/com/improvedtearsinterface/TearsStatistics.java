@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface;
+
+import java.util.Arrays;
+import javax.inject.Singleton;
+import lombok.Getter;
+
+/**
+ * Running statistics of the current game, fed one tick at a time. Everything is
+ * updated incrementally so the cost of a tick does not grow with the length of the game.
+ */
+@Singleton
+class TearsStatistics
+{
+	// 30 seconds of ticks
+	static final int WINDOW_TICKS = 50;
+
+	// Two-sided 95% confidence
+	private static final double CONFIDENCE_Z = 1.96;
+
+	private final int[] window = new int[WINDOW_TICKS];
+	private int windowIndex = 0;
+	private int windowSize = 0;
+	private int windowSum = 0;
+
+	private final int[] stateTicks = new int[TearCollectingState.values().length];
+
+	@Getter
+	private int ticks = 0;
+	// Welford's running mean and sum of squared differences of the per tick tear change
+	@Getter
+	private double mean = 0;
+	private double m2 = 0;
+
+	void reset()
+	{
+		Arrays.fill(window, 0);
+		windowIndex = 0;
+		windowSize = 0;
+		windowSum = 0;
+		Arrays.fill(stateTicks, 0);
+		ticks = 0;
+		mean = 0;
+		m2 = 0;
+	}
+
+	/**
+	 * Adds one game tick, during which the tear count changed by tearsDiff.
+	 */
+	void add(int tearsDiff, TearCollectingState state)
+	{
+		windowSum += tearsDiff - window[windowIndex];
+		window[windowIndex] = tearsDiff;
+		windowIndex = windowIndex + 1 == WINDOW_TICKS ? 0 : windowIndex + 1;
+		if (windowSize < WINDOW_TICKS)
+		{
+			windowSize++;
+		}
+
+		stateTicks[state.ordinal()]++;
+
+		ticks++;
+		final double delta = tearsDiff - mean;
+		mean += delta / ticks;
+		m2 += delta * (tearsDiff - mean);
+	}
+
+	/**
+	 * Gets the sample variance of the per tick tear change.
+	 */
+	double getVariance()
+	{
+		return ticks < 2 ? 0 : m2 / (ticks - 1);
+	}
+
+	/**
+	 * Gets the tears per tick over the last {@link #WINDOW_TICKS} ticks.
+	 */
+	double getWindowRate()
+	{
+		return windowSize == 0 ? 0 : windowSum / (double) windowSize;
+	}
+
+	int getStateTicks(TearCollectingState state)
+	{
+		return stateTicks[state.ordinal()];
+	}
+
+	int[] copyStateTicks()
+	{
+		return stateTicks.clone();
+	}
+
+	/**
+	 * Projects the final score if the rest of the game goes like it has so far.
+	 */
+	double getProjection(int tearsCollected, int ticksLeft)
+	{
+		return tearsCollected + mean * ticksLeft;
+	}
+
+	/**
+	 * Gets the half-width of the 95% confidence band around {@link #getProjection}.
+	 * Treats the remaining ticks as independent draws, plus the uncertainty of the mean itself.
+	 */
+	double getProjectionMargin(int ticksLeft)
+	{
+		if (ticks < 2)
+		{
+			return 0;
+		}
+		final double variance = getVariance();
+		return CONFIDENCE_Z * Math.sqrt(ticksLeft * variance + (double) ticksLeft * ticksLeft * variance / ticks);
+	}
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface;
+
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import lombok.Getter;
+import net.runelite.api.Constants;
+
+/**
+ * Measures the time between game ticks over the last {@link #HISTORY_SIZE} ticks, to tell how far
+ * off the usual 600ms they are and how many arrive late. Ticks that arrive long after the previous
+ * one stand for server ticks that were never seen, which the countdown can be compensated for.
+ */
+@Singleton
+class TearsTickMonitor
+{
+	static final int HISTORY_SIZE = 100;
+
+	static final long NOMINAL_TICK_LENGTH = TimeUnit.MILLISECONDS.toNanos(Constants.GAME_TICK_LENGTH);
+	// Intervals outside of this are lag spikes or missed ticks and don't say anything about the usual tick length
+	private static final long MIN_TICK_INTERVAL = NOMINAL_TICK_LENGTH / 2;
+	private static final long MAX_TICK_INTERVAL = NOMINAL_TICK_LENGTH * 2;
+	private static final long LATE_TICK_INTERVAL = NOMINAL_TICK_LENGTH * 3 / 2;
+	// Anything longer is not lag, ticks were just not being listened to
+	private static final long MAX_RECORDED_INTERVAL = TimeUnit.SECONDS.toNanos(10);
+
+	private final TearsClock clock;
+
+	private final long[] intervals = new long[HISTORY_SIZE];
+	private int index = 0;
+	private int size = 0;
+	private long sum = 0;
+	private double sumSquares = 0;
+	@Getter
+	private int lateTicks = 0;
+
+	// When the last tick arrived, and a moving average of the time between ticks
+	@Getter
+	private long tickTime = 0;
+	@Getter
+	private long tickLength = NOMINAL_TICK_LENGTH;
+
+	// Missed ticks already taken off the countdown whose events are yet to arrive
+	private int owedTicks = 0;
+	@Getter
+	private int compensation = 0;
+
+	@Inject
+	TearsTickMonitor(TearsClock clock)
+	{
+		this.clock = clock;
+	}
+
+	void clear()
+	{
+		index = 0;
+		size = 0;
+		sum = 0;
+		sumSquares = 0;
+		lateTicks = 0;
+		tickTime = 0;
+		owedTicks = 0;
+		compensation = 0;
+	}
+
+	void onTick()
+	{
+		final long now = clock.nanoTime();
+		final long interval = now - tickTime;
+		final boolean measured = tickTime != 0 && interval <= MAX_RECORDED_INTERVAL;
+		tickTime = now;
+		compensation = 0;
+		if (!measured)
+		{
+			return;
+		}
+
+		add(interval);
+		if (interval >= MIN_TICK_INTERVAL && interval <= MAX_TICK_INTERVAL)
+		{
+			tickLength += (interval - tickLength) / 8;
+		}
+
+		if (interval >= LATE_TICK_INTERVAL)
+		{
+			// The ticks in between may still arrive in a burst once the connection catches up
+			compensation = (int) Math.round(interval / (double) NOMINAL_TICK_LENGTH) - 1;
+			owedTicks += compensation;
+		}
+		else if (interval < MIN_TICK_INTERVAL && owedTicks > 0)
+		{
+			compensation = -1;
+			owedTicks--;
+		}
+	}
+
+	private void add(long interval)
+	{
+		if (size == HISTORY_SIZE)
+		{
+			final long old = intervals[index];
+			sum -= old;
+			sumSquares -= (double) old * old;
+			if (old >= LATE_TICK_INTERVAL)
+			{
+				lateTicks--;
+			}
+		}
+		else
+		{
+			size++;
+		}
+
+		intervals[index] = interval;
+		index = index + 1 == HISTORY_SIZE ? 0 : index + 1;
+		sum += interval;
+		sumSquares += (double) interval * interval;
+		if (interval >= LATE_TICK_INTERVAL)
+		{
+			lateTicks++;
+		}
+	}
+
+	int getSampleCount()
+	{
+		return size;
+	}
+
+	double getMeanInterval()
+	{
+		return size == 0 ? 0 : sum / (double) size;
+	}
+
+	/**
+	 * Gets the standard deviation of the time between ticks.
+	 */
+	double getJitter()
+	{
+		if (size < 2)
+		{
+			return 0;
+		}
+		final double mean = getMeanInterval();
+		return Math.sqrt(Math.max(0, (sumSquares - size * mean * mean) / (size - 1)));
+	}
+}
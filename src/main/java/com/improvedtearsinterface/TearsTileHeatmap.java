@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface;
+
+import static com.improvedtearsinterface.ImprovedTearsInterfacePlugin.TEARS_WP_MAX_X;
+import static com.improvedtearsinterface.ImprovedTearsInterfacePlugin.TEARS_WP_MAX_Y;
+import static com.improvedtearsinterface.ImprovedTearsInterfacePlugin.TEARS_WP_MIN_X;
+import static com.improvedtearsinterface.ImprovedTearsInterfacePlugin.TEARS_WP_MIN_Y;
+import static com.improvedtearsinterface.ImprovedTearsInterfacePlugin.TEARS_WP_PLANE;
+import java.util.Arrays;
+
+/**
+ * How much was collected from every tile of the minigame area: ticks spent collecting,
+ * tears gained, and tears lost to green veins. Indexed by the tile's offset in the area.
+ */
+class TearsTileHeatmap
+{
+	static final int WIDTH = TEARS_WP_MAX_X - TEARS_WP_MIN_X + 1;
+	static final int HEIGHT = TEARS_WP_MAX_Y - TEARS_WP_MIN_Y + 1;
+	static final int TILE_COUNT = WIDTH * HEIGHT;
+
+	private final int[] collectingTicks = new int[TILE_COUNT];
+	private final int[] tearsGained = new int[TILE_COUNT];
+	private final int[] tearsLost = new int[TILE_COUNT];
+	// Bumped on every change, so readers can tell whether copies they made are still current
+	private int version = 0;
+
+	TearsTileHeatmap()
+	{
+	}
+
+	TearsTileHeatmap(TearsTileHeatmap other)
+	{
+		merge(other);
+	}
+
+	/**
+	 * Adds one tick spent on the given tile, during which the tear count changed by tearsDiff.
+	 */
+	void add(int x, int y, int plane, int tearsDiff, TearCollectingState state)
+	{
+		final int index = getIndex(x, y, plane);
+		if (index < 0)
+		{
+			return;
+		}
+
+		if (state != TearCollectingState.NOT_COLLECTING)
+		{
+			collectingTicks[index]++;
+			version++;
+		}
+		if (tearsDiff > 0)
+		{
+			tearsGained[index] += tearsDiff;
+			version++;
+		}
+		else if (tearsDiff < 0 && state == TearCollectingState.GREEN_VEIN)
+		{
+			tearsLost[index] -= tearsDiff;
+			version++;
+		}
+	}
+
+	void add(int index, int collectingTicks, int tearsGained, int tearsLost)
+	{
+		this.collectingTicks[index] += collectingTicks;
+		this.tearsGained[index] += tearsGained;
+		this.tearsLost[index] += tearsLost;
+		version++;
+	}
+
+	void merge(TearsTileHeatmap other)
+	{
+		for (int i = 0; i < TILE_COUNT; i++)
+		{
+			add(i, other.collectingTicks[i], other.tearsGained[i], other.tearsLost[i]);
+		}
+	}
+
+	void clear()
+	{
+		Arrays.fill(collectingTicks, 0);
+		Arrays.fill(tearsGained, 0);
+		Arrays.fill(tearsLost, 0);
+		version++;
+	}
+
+	int getVersion()
+	{
+		return version;
+	}
+
+	int getCollectingTicks(int index)
+	{
+		return collectingTicks[index];
+	}
+
+	int getTearsGained(int index)
+	{
+		return tearsGained[index];
+	}
+
+	int getTearsLost(int index)
+	{
+		return tearsLost[index];
+	}
+
+	static int getWorldX(int index)
+	{
+		return TEARS_WP_MIN_X + index % WIDTH;
+	}
+
+	static int getWorldY(int index)
+	{
+		return TEARS_WP_MIN_Y + index / WIDTH;
+	}
+
+	static int getIndex(int x, int y, int plane)
+	{
+		final int dx = x - TEARS_WP_MIN_X;
+		final int dy = y - TEARS_WP_MIN_Y;
+		if (plane != TEARS_WP_PLANE || dx < 0 || dy < 0 || dx >= WIDTH || dy >= HEIGHT)
+		{
+			return -1;
+		}
+		return dy * WIDTH + dx;
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface;
+
+import com.improvedtearsinterface.engine.TearsEngine;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Polygon;
+import javax.inject.Inject;
+import net.runelite.api.Client;
+import net.runelite.client.ui.overlay.Overlay;
+import net.runelite.client.ui.overlay.OverlayLayer;
+import net.runelite.client.ui.overlay.OverlayPosition;
+import net.runelite.client.ui.overlay.OverlayUtil;
+
+class TearsVeinHighlightOverlay extends Overlay
+{
+	private static final Color BLUE_VEIN_COLOR = new Color(TearsEngine.COLOR_LIGHT_BLUE);
+	private static final Color GREEN_VEIN_COLOR = new Color(TearsEngine.COLOR_RED);
+
+	private final Client client;
+	private final ImprovedTearsInterfacePlugin plugin;
+	private final TearsConfigCache configCache;
+	private final TearsPerformanceMonitor performanceMonitor;
+
+	private final TilePolygonCache polygons;
+
+	@Inject
+	TearsVeinHighlightOverlay(Client client, ImprovedTearsInterfacePlugin plugin, TearsConfigCache configCache,
+		TearsPerformanceMonitor performanceMonitor)
+	{
+		setPosition(OverlayPosition.DYNAMIC);
+		setLayer(OverlayLayer.ABOVE_SCENE);
+		this.client = client;
+		this.plugin = plugin;
+		this.configCache = configCache;
+		this.performanceMonitor = performanceMonitor;
+		polygons = new TilePolygonCache(client, TearsVeinIndex.GRID_SIZE);
+	}
+
+	@Override
+	public Dimension render(Graphics2D graphics)
+	{
+		if (!configCache.get().highlightVeins() || client.getPlane() != ImprovedTearsInterfacePlugin.TEARS_WP_PLANE)
+		{
+			return null;
+		}
+
+		final long start = performanceMonitor.start();
+		renderVeins(graphics);
+		performanceMonitor.record(PerformanceMetric.VEIN_HIGHLIGHT_RENDER, start);
+		return null;
+	}
+
+	private void renderVeins(Graphics2D graphics)
+	{
+		final TearsStateSnapshot state = plugin.getState();
+		polygons.validate();
+
+		for (int i = 0; i < TearsVeinIndex.GRID_SIZE; i++)
+		{
+			final Color color;
+			switch (state.getVeinState(i))
+			{
+				case BLUE_VEIN:
+					color = BLUE_VEIN_COLOR;
+					break;
+				case GREEN_VEIN:
+					color = GREEN_VEIN_COLOR;
+					break;
+				default:
+					continue;
+			}
+
+			final Polygon poly = polygons.get(i, TearsVeinIndex.getWorldX(i), TearsVeinIndex.getWorldY(i));
+			if (poly != null)
+			{
+				OverlayUtil.renderPolygon(graphics, poly, color);
+			}
+		}
+	}
+}
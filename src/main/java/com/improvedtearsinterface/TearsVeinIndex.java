@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface;
+
+import static com.improvedtearsinterface.ImprovedTearsInterfacePlugin.TEARS_WP_MAX_X;
+import static com.improvedtearsinterface.ImprovedTearsInterfacePlugin.TEARS_WP_MAX_Y;
+import static com.improvedtearsinterface.ImprovedTearsInterfacePlugin.TEARS_WP_MIN_X;
+import static com.improvedtearsinterface.ImprovedTearsInterfacePlugin.TEARS_WP_MIN_Y;
+import static com.improvedtearsinterface.ImprovedTearsInterfacePlugin.TEARS_WP_PLANE;
+import java.util.Arrays;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import net.runelite.api.Client;
+import net.runelite.api.Constants;
+import net.runelite.api.DecorativeObject;
+import net.runelite.api.ObjectID;
+import net.runelite.api.Tile;
+import net.runelite.api.coords.WorldPoint;
+
+/**
+ * Keeps track of the state of every tear vein in the cave, kept up to date from
+ * decorative object spawn events. The grid covers the minigame area plus a
+ * one tile border, which is where the veins sit on the walls.
+ */
+@Singleton
+class TearsVeinIndex
+{
+	static final int GRID_MIN_X = TEARS_WP_MIN_X - 1;
+	static final int GRID_MIN_Y = TEARS_WP_MIN_Y - 1;
+	static final int GRID_WIDTH = TEARS_WP_MAX_X - TEARS_WP_MIN_X + 3;
+	static final int GRID_HEIGHT = TEARS_WP_MAX_Y - TEARS_WP_MIN_Y + 3;
+	static final int GRID_SIZE = GRID_WIDTH * GRID_HEIGHT;
+
+	private static final TearCollectingState[] STATES = TearCollectingState.values();
+
+	private final Client client;
+
+	// TearCollectingState ordinals, NOT_COLLECTING meaning there is no vein on the tile
+	private final byte[] states = new byte[GRID_SIZE];
+	private final int[] objectIds = new int[GRID_SIZE];
+	// Bumped on every change, so readers can tell whether copies they made are still current
+	private int version = 0;
+
+	@Inject
+	TearsVeinIndex(Client client)
+	{
+		this.client = client;
+		clear();
+	}
+
+	void clear()
+	{
+		Arrays.fill(states, (byte) TearCollectingState.NOT_COLLECTING.ordinal());
+		Arrays.fill(objectIds, -1);
+		version++;
+	}
+
+	/**
+	 * Rebuilds the whole index from the scene, for when spawn events were missed.
+	 * Must be called on the client thread.
+	 */
+	void rebuild()
+	{
+		clear();
+
+		final Tile[][][] tiles = client.getScene().getTiles();
+		final int baseX = client.getBaseX();
+		final int baseY = client.getBaseY();
+		for (int dx = 0; dx < GRID_WIDTH; dx++)
+		{
+			for (int dy = 0; dy < GRID_HEIGHT; dy++)
+			{
+				final int sceneX = GRID_MIN_X + dx - baseX;
+				final int sceneY = GRID_MIN_Y + dy - baseY;
+				if (sceneX < 0 || sceneY < 0 || sceneX >= Constants.SCENE_SIZE || sceneY >= Constants.SCENE_SIZE)
+				{
+					continue;
+				}
+
+				final Tile tile = tiles[TEARS_WP_PLANE][sceneX][sceneY];
+				if (tile != null && tile.getDecorativeObject() != null)
+				{
+					onSpawned(tile.getDecorativeObject());
+				}
+			}
+		}
+	}
+
+	void onSpawned(DecorativeObject obj)
+	{
+		final TearCollectingState state = getVeinState(obj.getId());
+		if (state == TearCollectingState.NOT_COLLECTING)
+		{
+			return;
+		}
+
+		final int index = getIndex(obj.getWorldLocation());
+		if (index >= 0)
+		{
+			states[index] = (byte) state.ordinal();
+			objectIds[index] = obj.getId();
+			version++;
+		}
+	}
+
+	void onDespawned(DecorativeObject obj)
+	{
+		final int index = getIndex(obj.getWorldLocation());
+		// The replacing object may have spawned first, so only clear the tile if it is still ours
+		if (index >= 0 && objectIds[index] == obj.getId())
+		{
+			states[index] = (byte) TearCollectingState.NOT_COLLECTING.ordinal();
+			objectIds[index] = -1;
+			version++;
+		}
+	}
+
+	/**
+	 * Gets the id of the vein object at the given grid index, -1 if there is none.
+	 */
+	int getObjectId(int index)
+	{
+		return objectIds[index];
+	}
+
+	TearCollectingState getState(int index)
+	{
+		return STATES[states[index]];
+	}
+
+	/**
+	 * Copies the state ordinals of the whole grid.
+	 */
+	byte[] copyStates()
+	{
+		return states.clone();
+	}
+
+	int getVersion()
+	{
+		return version;
+	}
+
+	static int getWorldX(int index)
+	{
+		return GRID_MIN_X + index % GRID_WIDTH;
+	}
+
+	static int getWorldY(int index)
+	{
+		return GRID_MIN_Y + index / GRID_WIDTH;
+	}
+
+	/**
+	 * Gets the state of the vein on the given tile, NOT_COLLECTING if there is none.
+	 */
+	TearCollectingState getVeinState(int x, int y, int plane)
+	{
+		final int index = getIndex(x, y, plane);
+		return index < 0 ? TearCollectingState.NOT_COLLECTING : STATES[states[index]];
+	}
+
+	/**
+	 * Gets the state of the vein a player standing on the given tile would be collecting from.
+	 */
+	TearCollectingState getAdjacentVeinState(int x, int y, int plane)
+	{
+		// Only ever one tear thing adjacent to the player so this logic should be fine
+		// Don't need to check dx(-1) as there is no tears on the western side
+		TearCollectingState state = getVeinState(x + 1, y, plane);
+		if (state == TearCollectingState.NOT_COLLECTING)
+		{
+			state = getVeinState(x, y + 1, plane);
+		}
+		if (state == TearCollectingState.NOT_COLLECTING)
+		{
+			state = getVeinState(x, y - 1, plane);
+		}
+		return state == TearCollectingState.NOT_COLLECTING ? TearCollectingState.EMPTY_VEIN : state;
+	}
+
+	static TearCollectingState getVeinState(int objectId)
+	{
+		switch (objectId)
+		{
+			case ObjectID.ABSENCE_OF_TEARS:
+			case ObjectID.ABSENCE_OF_TEARS_6667:
+				return TearCollectingState.EMPTY_VEIN;
+			case ObjectID.BLUE_TEARS:
+			case ObjectID.BLUE_TEARS_6665:
+				return TearCollectingState.BLUE_VEIN;
+			case ObjectID.GREEN_TEARS:
+			case ObjectID.GREEN_TEARS_6666:
+				return TearCollectingState.GREEN_VEIN;
+			default:
+				return TearCollectingState.NOT_COLLECTING;
+		}
+	}
+
+	static int getIndex(int x, int y, int plane)
+	{
+		final int dx = x - GRID_MIN_X;
+		final int dy = y - GRID_MIN_Y;
+		if (plane != TEARS_WP_PLANE || dx < 0 || dy < 0 || dx >= GRID_WIDTH || dy >= GRID_HEIGHT)
+		{
+			return -1;
+		}
+		return dy * GRID_WIDTH + dx;
+	}
+
+	private static int getIndex(WorldPoint wp)
+	{
+		return wp == null ? -1 : getIndex(wp.getX(), wp.getY(), wp.getPlane());
+	}
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface;
+
+import java.util.Arrays;
+import javax.inject.Singleton;
+import lombok.Getter;
+
+/**
+ * Keeps a short timeline of the veins that appeared on every tile of the cave, and learns
+ * from it how long each kind of vein lasts and what it tends to turn into. That is then
+ * used to guess which vein will turn blue next, and when.
+ */
+@Singleton
+class TearsVeinTracker
+{
+	// Timeline entries kept per tile
+	static final int HISTORY_SIZE = 8;
+
+	private static final int NO_TICK = -1;
+	private static final int STATE_COUNT = TearCollectingState.values().length;
+	private static final int BLUE = TearCollectingState.BLUE_VEIN.ordinal();
+
+	// Per tile ring buffers, entry i of tile t lives at t * HISTORY_SIZE + i
+	private final int[] objectIds = new int[TearsVeinIndex.GRID_SIZE * HISTORY_SIZE];
+	private final int[] spawnTicks = new int[TearsVeinIndex.GRID_SIZE * HISTORY_SIZE];
+	private final int[] despawnTicks = new int[TearsVeinIndex.GRID_SIZE * HISTORY_SIZE];
+	private final byte[] heads = new byte[TearsVeinIndex.GRID_SIZE];
+	private final byte[] sizes = new byte[TearsVeinIndex.GRID_SIZE];
+
+	// Learned over every tile, there are too few cycles per tile to learn them individually
+	private final long[] lifetimeTotals = new long[STATE_COUNT];
+	private final int[] lifetimeCounts = new int[STATE_COUNT];
+	private final int[] transitions = new int[STATE_COUNT * STATE_COUNT];
+
+	@Getter
+	private int predictedIndex = -1;
+	@Getter
+	private int predictedTick = NO_TICK;
+
+	/**
+	 * Forgets the timelines but keeps what was learned from them.
+	 */
+	void clear()
+	{
+		Arrays.fill(heads, (byte) 0);
+		Arrays.fill(sizes, (byte) 0);
+		predictedIndex = -1;
+		predictedTick = NO_TICK;
+	}
+
+	/**
+	 * Adds a vein that was already there, so when it appeared is unknown.
+	 */
+	void onExisting(int index, int objectId)
+	{
+		append(index, objectId, NO_TICK);
+	}
+
+	void onSpawned(int index, int objectId, int tick)
+	{
+		final int last = getLast(index);
+		if (last >= 0 && (despawnTicks[last] == NO_TICK || tick - despawnTicks[last] <= 1))
+		{
+			// The new vein may spawn before the one it replaces despawns
+			if (despawnTicks[last] == NO_TICK)
+			{
+				end(last, tick);
+			}
+			transitions[stateOf(objectIds[last]) * STATE_COUNT + stateOf(objectId)]++;
+		}
+		append(index, objectId, tick);
+	}
+
+	void onDespawned(int index, int objectId, int tick)
+	{
+		final int last = getLast(index);
+		if (last >= 0 && objectIds[last] == objectId && despawnTicks[last] == NO_TICK)
+		{
+			end(last, tick);
+		}
+	}
+
+	/**
+	 * Gets the average number of ticks a vein of the given state lasts, or 0 if none was seen yet.
+	 */
+	double getAverageLifetime(TearCollectingState state)
+	{
+		final int count = lifetimeCounts[state.ordinal()];
+		return count == 0 ? 0 : lifetimeTotals[state.ordinal()] / (double) count;
+	}
+
+	/**
+	 * Gets how likely a vein of the given state is to be replaced by one of the next state.
+	 */
+	double getTransitionChance(TearCollectingState from, TearCollectingState to)
+	{
+		int total = 0;
+		for (int i = 0; i < STATE_COUNT; i++)
+		{
+			total += transitions[from.ordinal() * STATE_COUNT + i];
+		}
+		return total == 0 ? 0 : transitions[from.ordinal() * STATE_COUNT + to.ordinal()] / (double) total;
+	}
+
+	/**
+	 * Gets how many more ticks the vein on the given tile is expected to last, -1 if there is
+	 * no vein or nothing was learned about its kind yet. Veins of unknown age are assumed to be
+	 * halfway through.
+	 */
+	int getExpectedRemaining(int index, int tick)
+	{
+		final int last = getLast(index);
+		if (last < 0 || despawnTicks[last] != NO_TICK)
+		{
+			return -1;
+		}
+
+		final double lifetime = getAverageLifetime(TearsVeinIndex.getVeinState(objectIds[last]));
+		if (lifetime == 0)
+		{
+			return -1;
+		}
+		if (spawnTicks[last] == NO_TICK)
+		{
+			return (int) Math.round(lifetime / 2);
+		}
+		return Math.max(0, spawnTicks[last] + (int) Math.round(lifetime) - tick);
+	}
+
+	void clearPrediction()
+	{
+		predictedIndex = -1;
+		predictedTick = NO_TICK;
+	}
+
+	/**
+	 * Picks the vein that is expected to turn blue soonest, out of the ones that
+	 * more likely than not turn blue when they change.
+	 */
+	void updatePrediction(int tick)
+	{
+		clearPrediction();
+		for (int index = 0; index < TearsVeinIndex.GRID_SIZE; index++)
+		{
+			final int last = getLast(index);
+			if (last < 0 || despawnTicks[last] != NO_TICK || spawnTicks[last] == NO_TICK)
+			{
+				continue;
+			}
+
+			final TearCollectingState state = TearsVeinIndex.getVeinState(objectIds[last]);
+			final double lifetime = getAverageLifetime(state);
+			if (state.ordinal() == BLUE || lifetime == 0
+				|| getTransitionChance(state, TearCollectingState.BLUE_VEIN) < 0.5)
+			{
+				continue;
+			}
+
+			// An overdue vein could change any moment
+			final int expectedTick = Math.max(tick, spawnTicks[last] + (int) Math.round(lifetime));
+			if (predictedIndex == -1 || expectedTick < predictedTick)
+			{
+				predictedIndex = index;
+				predictedTick = expectedTick;
+			}
+		}
+	}
+
+	private void end(int entry, int tick)
+	{
+		despawnTicks[entry] = tick;
+		if (spawnTicks[entry] != NO_TICK)
+		{
+			final int state = stateOf(objectIds[entry]);
+			lifetimeTotals[state] += tick - spawnTicks[entry];
+			lifetimeCounts[state]++;
+		}
+	}
+
+	private void append(int index, int objectId, int tick)
+	{
+		int slot;
+		if (sizes[index] < HISTORY_SIZE)
+		{
+			slot = (heads[index] + sizes[index]) % HISTORY_SIZE;
+			sizes[index]++;
+		}
+		else
+		{
+			slot = heads[index];
+			heads[index] = (byte) ((heads[index] + 1) % HISTORY_SIZE);
+		}
+
+		final int entry = index * HISTORY_SIZE + slot;
+		objectIds[entry] = objectId;
+		spawnTicks[entry] = tick;
+		despawnTicks[entry] = NO_TICK;
+	}
+
+	/**
+	 * Gets the array index of the newest entry of a tile, -1 if there is none.
+	 */
+	private int getLast(int index)
+	{
+		if (sizes[index] == 0)
+		{
+			return -1;
+		}
+		return index * HISTORY_SIZE + (heads[index] + sizes[index] - 1) % HISTORY_SIZE;
+	}
+
+	private static int stateOf(int objectId)
+	{
+		return TearsVeinIndex.getVeinState(objectId).ordinal();
+	}
+}
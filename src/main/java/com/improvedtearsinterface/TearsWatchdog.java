@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Singleton;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Measures the game tick and the +1/-1 render against a time budget each, and when either keeps going
+ * over sheds that path's own optional work one {@link DegradationLevel} at a time. Work is brought back
+ * one step at a time once its path has stayed well under budget for a while.
+ * <p>
+ * Samples taken with work shed don't show what that work costs, so bringing it back is a trial: if
+ * the path goes over budget again before the trial is done, the step is shed again and kept off until
+ * the next game, instead of coming back every time the cheaper samples add up.
+ * <p>
+ * Everything runs on the client thread, only the shed work is read from elsewhere.
+ */
+@Slf4j
+@Singleton
+class TearsWatchdog
+{
+	// What each path sheds, in order. Analytics are most of the optional tick work, flashing text
+	// costs little but is written to the interface every tick.
+	private static final DegradationLevel[] TICK_WORK = {DegradationLevel.NO_ANALYTICS, DegradationLevel.NO_FLASHING};
+	private static final DegradationLevel[] FRAME_WORK = {DegradationLevel.NO_ANIMATION};
+
+	// Consecutive samples over budget before shedding a step
+	private static final int TICKS_OVER_BUDGET = 3;
+	private static final int FRAMES_OVER_BUDGET = 30;
+	// Consecutive samples under half the budget before restoring a step
+	private static final int TICKS_UNDER_BUDGET = 50;
+	private static final int FRAMES_UNDER_BUDGET = 1000;
+
+	private final Budget tickBudget = new Budget("Tick", TICK_WORK, TICKS_OVER_BUDGET, TICKS_UNDER_BUDGET);
+	private final Budget frameBudget = new Budget("Frame", FRAME_WORK, FRAMES_OVER_BUDGET, FRAMES_UNDER_BUDGET);
+
+	@Getter
+	private boolean enabled = false;
+
+	void configure(boolean enabled, int tickBudgetMicros, int frameBudgetMicros)
+	{
+		this.enabled = enabled;
+		tickBudget.limit = TimeUnit.MICROSECONDS.toNanos(tickBudgetMicros);
+		frameBudget.limit = TimeUnit.MICROSECONDS.toNanos(frameBudgetMicros);
+		reset();
+	}
+
+	void reset()
+	{
+		tickBudget.reset();
+		frameBudget.reset();
+	}
+
+	/**
+	 * Gives the steps that failed their trial another one, called when a game starts.
+	 */
+	void retryShedWork()
+	{
+		tickBudget.failed = 0;
+		frameBudget.failed = 0;
+	}
+
+	/**
+	 * Whether the given work is currently turned off.
+	 */
+	boolean isShedding(DegradationLevel level)
+	{
+		return tickBudget.isShedding(level) || frameBudget.isShedding(level);
+	}
+
+	/**
+	 * Gets the last step the game tick has shed, or {@link DegradationLevel#NONE}.
+	 */
+	DegradationLevel getTickLevel()
+	{
+		return tickBudget.getLevel();
+	}
+
+	/**
+	 * Gets the last step the +1/-1 render has shed, or {@link DegradationLevel#NONE}.
+	 */
+	DegradationLevel getFrameLevel()
+	{
+		return frameBudget.getLevel();
+	}
+
+	/**
+	 * Gets how many steps the game tick and the +1/-1 render have shed together.
+	 */
+	int getShedCount()
+	{
+		return tickBudget.shed + frameBudget.shed;
+	}
+
+	/**
+	 * Gets the start time to later pass to {@link #recordTick} or {@link #recordFrame}, or 0 if disabled.
+	 */
+	long start()
+	{
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	void recordTick(long start)
+	{
+		if (start != 0)
+		{
+			recordTickTime(System.nanoTime() - start);
+		}
+	}
+
+	@VisibleForTesting
+	void recordTickTime(long nanos)
+	{
+		tickBudget.add(nanos);
+	}
+
+	void recordFrame(long start)
+	{
+		if (start != 0)
+		{
+			recordFrameTime(System.nanoTime() - start);
+		}
+	}
+
+	@VisibleForTesting
+	void recordFrameTime(long nanos)
+	{
+		frameBudget.add(nanos);
+	}
+
+	private static class Budget
+	{
+		private final String name;
+		private final DegradationLevel[] work;
+		private final int overLimit;
+		private final int underLimit;
+		private long limit;
+		private int over;
+		private int under;
+		// Steps of work currently shed
+		private volatile int shed;
+		// Samples left in the trial of the last step brought back, 0 if there is none
+		private int trial;
+		// Steps that went over budget during their trial, which aren't brought back until retried
+		private int failed;
+
+		Budget(String name, DegradationLevel[] work, int overLimit, int underLimit)
+		{
+			this.name = name;
+			this.work = work;
+			this.overLimit = overLimit;
+			this.underLimit = underLimit;
+		}
+
+		void add(long nanos)
+		{
+			final boolean inTrial = trial > 0;
+			if (inTrial)
+			{
+				trial--;
+			}
+
+			if (nanos > limit)
+			{
+				under = 0;
+				if (++over >= overLimit && shed < work.length)
+				{
+					if (inTrial)
+					{
+						// What was brought back is what made it slow
+						failed = Math.max(failed, shed + 1);
+					}
+					change(shed + 1);
+				}
+				return;
+			}
+
+			over = 0;
+			if (nanos < limit / 2)
+			{
+				if (++under >= underLimit && shed > failed)
+				{
+					change(shed - 1);
+					trial = underLimit;
+				}
+				return;
+			}
+			under = 0;
+		}
+
+		private void change(int shed)
+		{
+			this.shed = shed;
+			over = 0;
+			under = 0;
+			trial = 0;
+			log.debug("Tears of Guthix {} work shed now {}", name.toLowerCase(), getLevel());
+		}
+
+		boolean isShedding(DegradationLevel level)
+		{
+			final int shed = this.shed;
+			for (int i = 0; i < shed; i++)
+			{
+				if (work[i] == level)
+				{
+					return true;
+				}
+			}
+			return false;
+		}
+
+		DegradationLevel getLevel()
+		{
+			final int shed = this.shed;
+			return shed == 0 ? DegradationLevel.NONE : work[shed - 1];
+		}
+
+		void reset()
+		{
+			over = 0;
+			under = 0;
+			shed = 0;
+			trial = 0;
+			failed = 0;
+		}
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface;
+
+import static com.improvedtearsinterface.ImprovedTearsInterfacePlugin.TEARS_WIDGET_CHILD_COUNT_TEXT;
+import static com.improvedtearsinterface.ImprovedTearsInterfacePlugin.TEARS_WIDGET_CHILD_TIME_TEXT;
+import static com.improvedtearsinterface.ImprovedTearsInterfacePlugin.TEARS_WIDGET_CHILD_WATER_TEXT;
+import static com.improvedtearsinterface.ImprovedTearsInterfacePlugin.TEARS_WIDGET_GROUP_ID;
+import static com.improvedtearsinterface.engine.TearsEngine.COLOR_YELLOW;
+import java.awt.Color;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import net.runelite.api.Client;
+import net.runelite.api.widgets.Widget;
+import net.runelite.client.util.ColorUtil;
+
+/**
+ * Writes to the Tears of Guthix interface widgets.
+ * Widget handles are resolved once and kept until the interface is reloaded or closed,
+ * and a text or colour is only written when it differs from what the widget currently shows.
+ */
+@Singleton
+class TearsWidgetWriter
+{
+	private static final String TICK_LEFT_STRING = ColorUtil.wrapWithColorTag("Ticks Left:", Color.YELLOW) + " %d / %d";
+	private static final String DEFAULT_TIME_LEFT_STRING = "Time Left";
+	private static final String DEFAULT_WATER_COLLECTED_STRING = "Water Collected";
+
+	private final Client client;
+
+	private Widget timeLeftWidget;
+	private Widget waterTextWidget;
+	private Widget tearsCountWidget;
+	private boolean resolved = false;
+
+	// Indexed by displayed ticks left, from 0 to maxTicks
+	private int preparedMaxTicks = -1;
+	private String[] tickStrings = new String[0];
+
+	@Inject
+	TearsWidgetWriter(Client client)
+	{
+		this.client = client;
+	}
+
+	/**
+	 * Precomputes the ticks left strings for every value from 0 to maxTicks.
+	 */
+	void prepare(int maxTicks)
+	{
+		if (maxTicks == preparedMaxTicks || maxTicks < 0)
+		{
+			return;
+		}
+
+		tickStrings = new String[maxTicks + 1];
+		for (int i = 0; i <= maxTicks; i++)
+		{
+			tickStrings[i] = String.format(TICK_LEFT_STRING, i, maxTicks);
+		}
+		preparedMaxTicks = maxTicks;
+	}
+
+	/**
+	 * Drops the cached widget handles, to be called whenever the interface is loaded or closed.
+	 */
+	void invalidate()
+	{
+		timeLeftWidget = null;
+		waterTextWidget = null;
+		tearsCountWidget = null;
+		resolved = false;
+	}
+
+	/**
+	 * Whether the interface is currently loaded, resolving the widget handles if needed.
+	 */
+	boolean isLoaded()
+	{
+		if (!resolved)
+		{
+			timeLeftWidget = client.getWidget(TEARS_WIDGET_GROUP_ID, TEARS_WIDGET_CHILD_TIME_TEXT);
+			waterTextWidget = client.getWidget(TEARS_WIDGET_GROUP_ID, TEARS_WIDGET_CHILD_WATER_TEXT);
+			tearsCountWidget = client.getWidget(TEARS_WIDGET_GROUP_ID, TEARS_WIDGET_CHILD_COUNT_TEXT);
+			// Keep trying every call until the interface actually shows up
+			resolved = timeLeftWidget != null;
+		}
+		return resolved;
+	}
+
+	void writeTicksLeft(int displayedTicksLeft, int maxTicks, int color)
+	{
+		if (displayedTicksLeft >= 0 && displayedTicksLeft <= preparedMaxTicks && maxTicks == preparedMaxTicks)
+		{
+			write(timeLeftWidget, tickStrings[displayedTicksLeft], color);
+		}
+		else
+		{
+			write(timeLeftWidget, String.format(TICK_LEFT_STRING, displayedTicksLeft, maxTicks), color);
+		}
+	}
+
+	void writeWaterText(String text, int color)
+	{
+		write(waterTextWidget, text, color);
+	}
+
+	void writeTearsCountColor(int color)
+	{
+		if (tearsCountWidget != null && tearsCountWidget.getTextColor() != color)
+		{
+			tearsCountWidget.setTextColor(color);
+		}
+	}
+
+	/**
+	 * Puts the interface back the way the game originally draws it.
+	 */
+	void restoreDefaults()
+	{
+		invalidate();
+		if (isLoaded())
+		{
+			write(timeLeftWidget, DEFAULT_TIME_LEFT_STRING, COLOR_YELLOW);
+			write(waterTextWidget, DEFAULT_WATER_COLLECTED_STRING, COLOR_YELLOW);
+			writeTearsCountColor(COLOR_YELLOW);
+		}
+		invalidate();
+	}
+
+	private static void write(Widget widget, String text, int color)
+	{
+		if (widget == null)
+		{
+			return;
+		}
+
+		if (!text.equals(widget.getText()))
+		{
+			widget.setText(text);
+		}
+		if (widget.getTextColor() != color)
+		{
+			widget.setTextColor(color);
+		}
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface;
+
+import java.awt.Polygon;
+import java.util.Arrays;
+import net.runelite.api.Client;
+import net.runelite.api.Perspective;
+import net.runelite.api.coords.LocalPoint;
+
+/**
+ * Canvas polygons of a fixed set of tiles, indexed by the caller. Tile polygons only move when the
+ * camera, viewport or scene does, so they are worked out once and kept until one of those changes.
+ */
+class TilePolygonCache
+{
+	private final Client client;
+
+	private final Polygon[] polygons;
+	private final boolean[] computed;
+	private final int[] cameraState = new int[12];
+	private final int[] lastCameraState = new int[cameraState.length];
+
+	TilePolygonCache(Client client, int size)
+	{
+		this.client = client;
+		polygons = new Polygon[size];
+		computed = new boolean[size];
+	}
+
+	/**
+	 * Drops the polygons if the camera moved since the last call, to be called once a frame before {@link #get}.
+	 */
+	void validate()
+	{
+		if (cameraChanged())
+		{
+			Arrays.fill(computed, false);
+		}
+	}
+
+	/**
+	 * Gets the polygon of the tile, or null if it isn't in the scene.
+	 */
+	Polygon get(int index, int worldX, int worldY)
+	{
+		if (!computed[index])
+		{
+			final LocalPoint lp = LocalPoint.fromWorld(client, worldX, worldY);
+			polygons[index] = lp == null ? null : Perspective.getCanvasTilePoly(client, lp);
+			computed[index] = true;
+		}
+		return polygons[index];
+	}
+
+	private boolean cameraChanged()
+	{
+		cameraState[0] = client.getCameraX();
+		cameraState[1] = client.getCameraY();
+		cameraState[2] = client.getCameraZ();
+		cameraState[3] = client.getCameraPitch();
+		cameraState[4] = client.getCameraYaw();
+		cameraState[5] = client.getScale();
+		cameraState[6] = client.getBaseX();
+		cameraState[7] = client.getBaseY();
+		cameraState[8] = client.getViewportXOffset();
+		cameraState[9] = client.getViewportYOffset();
+		cameraState[10] = client.getViewportWidth();
+		cameraState[11] = client.getViewportHeight();
+
+		boolean changed = false;
+		for (int i = 0; i < cameraState.length; i++)
+		{
+			if (cameraState[i] != lastCameraState[i])
+			{
+				lastCameraState[i] = cameraState[i];
+				changed = true;
+			}
+		}
+		return changed;
+	}
+}
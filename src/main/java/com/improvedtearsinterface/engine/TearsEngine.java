@@ -0,0 +1,349 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface.engine;
+
+import lombok.Getter;
+
+/**
+ * The minigame's timer, score and interface logic, with no client types so it can be driven from
+ * tests, recordings and benchmarks. The plugin reads the client once a tick, feeds the engine plain
+ * values and writes what the engine works out back to the interface.
+ * <p>
+ * A tick is {@link #advanceTimer} with the timer varbit and where the player stands, followed by
+ * {@link #updateTears} with the score and collecting state whenever a game is on.
+ */
+public class TearsEngine
+{
+	public static final int TICKS_FROM_JUNAS_TAIL = 9;
+	public static final int TICKS_FOR_START_TIMER = 6;
+
+	// Where the player stands, the entrance column counts as the minigame area but not as the cave
+	public static final int AREA_OUTSIDE = 0;
+	public static final int AREA_ENTRANCE = 1;
+	public static final int AREA_CAVE = 2;
+
+	// Collecting states, in TearCollectingState order
+	public static final int STATE_NOT_COLLECTING = 0;
+	public static final int STATE_EMPTY_VEIN = 1;
+	public static final int STATE_GREEN_VEIN = 2;
+	public static final int STATE_BLUE_VEIN = 3;
+
+	// Results of advanceTimer
+	public static final int TIMER_IDLE = 0;
+	public static final int TIMER_STARTED = 1;
+	public static final int TIMER_RUNNING = 2;
+
+	// What the water text should say
+	public static final int MESSAGE_GET_READY = 0;
+	public static final int MESSAGE_STARTING_IN = 1;
+	public static final int MESSAGE_TIME_UP = 2;
+	public static final int MESSAGE_NOT_COLLECTING = 3;
+	public static final int MESSAGE_EMPTY_VEIN = 4;
+	public static final int MESSAGE_GREEN_VEIN = 5;
+	public static final int MESSAGE_BLUE_VEIN = 6;
+
+	public static final int COLOR_YELLOW = 0xFFFF00;
+	public static final int COLOR_LIGHT_ORANGE = 0xFF9900;
+	public static final int COLOR_ORANGE = 0xFF6600;
+	public static final int COLOR_RED = 0xFF0000;
+	public static final int COLOR_LIGHT_BLUE = 0x00BBFF;
+	public static final int COLOR_BLUE = 0x0066FF;
+	public static final int COLOR_GREEN = 0x00FF00;
+	public static final int COLOR_DARK_GREEN = 0x00CC00;
+
+	@Getter
+	private int maxTicks = 0;
+	@Getter
+	private int minigameStarting = 0;
+	@Getter
+	private boolean minigameEnding = false;
+	@Getter
+	private int ticksLeft = 0;
+	@Getter
+	private int displayedTicksLeft = 0;
+	@Getter
+	private int tearsCollected = 0;
+	@Getter
+	private boolean inMinigame = false;
+	// Set when the plugin is turned on mid game, nothing is shown until the player leaves the cave
+	@Getter
+	private boolean turnedOnDuringMinigame = false;
+
+	// Timer varbit of the current tick, kept until the tick's tears are in
+	private int newTicksLeft = 0;
+
+	// Ticks left colours indexed by displayed ticks left, from 0 to preparedMaxTicks, kept between games
+	private int preparedMaxTicks = -1;
+	private int[] tickColors = new int[0];
+	private int[] tickFlashColors = new int[0];
+
+	// Display model of the last tick
+	@Getter
+	private int tearsDiff = 0;
+	@Getter
+	private boolean flash = false;
+	@Getter
+	private int ticksLeftColor = COLOR_RED;
+	@Getter
+	private int message = MESSAGE_NOT_COLLECTING;
+	@Getter
+	private int messageColor = COLOR_YELLOW;
+	@Getter
+	private int tearsCountColor = COLOR_YELLOW;
+
+	public void reset()
+	{
+		maxTicks = 0;
+		minigameStarting = 0;
+		minigameEnding = false;
+		ticksLeft = 0;
+		displayedTicksLeft = 0;
+		tearsCollected = 0;
+		inMinigame = false;
+		turnedOnDuringMinigame = false;
+		newTicksLeft = 0;
+		tearsDiff = 0;
+		flash = false;
+		ticksLeftColor = COLOR_RED;
+		message = MESSAGE_NOT_COLLECTING;
+		messageColor = COLOR_YELLOW;
+		tearsCountColor = COLOR_YELLOW;
+	}
+
+	/**
+	 * Called when the plugin starts while a game is already running, whose start was missed.
+	 */
+	public void setTurnedOnDuringMinigame()
+	{
+		turnedOnDuringMinigame = true;
+	}
+
+	/**
+	 * Moves the timer along by one game tick.
+	 *
+	 * @param varbitTicksLeft the ticks left varbit, 0 outside of a game
+	 * @param area            one of the AREA constants
+	 * @param elapsedTicks    server ticks since the last call, more than 1 when making up for lag
+	 * @return one of the TIMER constants, {@link #updateTears} is to be called unless idle
+	 */
+	public int advanceTimer(int varbitTicksLeft, int area, int elapsedTicks)
+	{
+		if (turnedOnDuringMinigame)
+		{
+			if (area == AREA_CAVE)
+			{
+				return TIMER_IDLE;
+			}
+			reset();
+		}
+
+		newTicksLeft = varbitTicksLeft;
+		boolean started = false;
+		if (varbitTicksLeft > 0 && area != AREA_OUTSIDE)
+		{
+			inMinigame = true;
+
+			// Going from 0 -> Starting amount
+			if (ticksLeft == 0)
+			{
+				maxTicks = varbitTicksLeft;
+				displayedTicksLeft = varbitTicksLeft;
+				minigameStarting = TICKS_FROM_JUNAS_TAIL;
+				started = true;
+				prepareColors(maxTicks);
+			}
+			else if (minigameStarting > 0)
+			{
+				if (area == AREA_CAVE)
+				{
+					minigameStarting--;
+				}
+			}
+			else if (varbitTicksLeft == ticksLeft)
+			{
+				// The varbit only changes every few ticks, count down in between
+				if (displayedTicksLeft > 0)
+				{
+					displayedTicksLeft = Math.max(0, displayedTicksLeft - elapsedTicks);
+				}
+			}
+			else
+			{
+				displayedTicksLeft = varbitTicksLeft;
+			}
+		}
+		else if (ticksLeft > 0)
+		{
+			minigameEnding = true;
+			ticksLeft = 0;
+			displayedTicksLeft = 0;
+		}
+
+		if (!inMinigame)
+		{
+			return TIMER_IDLE;
+		}
+		return started ? TIMER_STARTED : TIMER_RUNNING;
+	}
+
+	/**
+	 * Takes in the tick's score and works out what the interface should show.
+	 *
+	 * @param tick            the client's tick count
+	 * @param varbitTears     the tears collected varbit
+	 * @param collectingState one of the STATE constants
+	 * @param area            one of the AREA constants
+	 * @param flashingText    whether the flashing text option is on
+	 * @return true once the game is over and the player has left the cave, at which point the
+	 * plugin is done with the game and should {@link #reset} the engine
+	 */
+	public boolean updateTears(int tick, int varbitTears, int collectingState, int area, boolean flashingText)
+	{
+		tearsDiff = varbitTears - tearsCollected;
+		flash = flashingText && tick % 2 != 0;
+		if (maxTicks == preparedMaxTicks && displayedTicksLeft >= 0 && displayedTicksLeft <= maxTicks)
+		{
+			ticksLeftColor = flash ? tickFlashColors[displayedTicksLeft] : tickColors[displayedTicksLeft];
+		}
+		else
+		{
+			ticksLeftColor = getTicksLeftColor(displayedTicksLeft, maxTicks, flash);
+		}
+		updateMessage(collectingState);
+
+		if (tearsDiff > 0)
+		{
+			tearsCountColor = COLOR_GREEN;
+		}
+		else if (tearsDiff < 0)
+		{
+			tearsCountColor = COLOR_RED;
+		}
+		else
+		{
+			tearsCountColor = COLOR_YELLOW;
+		}
+
+		if (minigameEnding && area != AREA_CAVE)
+		{
+			return true;
+		}
+
+		ticksLeft = newTicksLeft;
+		tearsCollected = varbitTears;
+		return false;
+	}
+
+	/**
+	 * Whether the tick's tears count towards the game, as opposed to the countdown before it
+	 * or the ticks after it is over.
+	 */
+	public boolean isCounting()
+	{
+		return inMinigame && minigameStarting == 0 && !minigameEnding;
+	}
+
+	/**
+	 * Precomputes the ticks left colours for every value from 0 to maxTicks.
+	 */
+	private void prepareColors(int maxTicks)
+	{
+		if (maxTicks == preparedMaxTicks)
+		{
+			return;
+		}
+
+		tickColors = new int[maxTicks + 1];
+		tickFlashColors = new int[maxTicks + 1];
+		for (int i = 0; i <= maxTicks; i++)
+		{
+			tickColors[i] = getTicksLeftColor(i, maxTicks, false);
+			tickFlashColors[i] = getTicksLeftColor(i, maxTicks, true);
+		}
+		preparedMaxTicks = maxTicks;
+	}
+
+	private void updateMessage(int collectingState)
+	{
+		if (minigameStarting > 0)
+		{
+			message = minigameStarting >= TICKS_FOR_START_TIMER ? MESSAGE_GET_READY : MESSAGE_STARTING_IN;
+			messageColor = flash ? COLOR_DARK_GREEN : COLOR_GREEN;
+		}
+		else if (minigameEnding)
+		{
+			message = MESSAGE_TIME_UP;
+			messageColor = flash ? COLOR_ORANGE : COLOR_RED;
+		}
+		else
+		{
+			switch (collectingState)
+			{
+				case STATE_BLUE_VEIN:
+					message = MESSAGE_BLUE_VEIN;
+					messageColor = flash ? COLOR_BLUE : COLOR_LIGHT_BLUE;
+					break;
+				case STATE_GREEN_VEIN:
+					message = MESSAGE_GREEN_VEIN;
+					messageColor = flash ? COLOR_DARK_GREEN : COLOR_GREEN;
+					break;
+				case STATE_EMPTY_VEIN:
+					message = MESSAGE_EMPTY_VEIN;
+					messageColor = flash ? COLOR_LIGHT_ORANGE : COLOR_ORANGE;
+					break;
+				default:
+					message = MESSAGE_NOT_COLLECTING;
+					messageColor = COLOR_YELLOW;
+					break;
+			}
+		}
+	}
+
+	public static int getTicksLeftColor(int displayedTicksLeft, int maxTicks, boolean flash)
+	{
+		if (displayedTicksLeft > 0 && maxTicks > 0)
+		{
+			double part = displayedTicksLeft / (double) maxTicks;
+			if (part < 0.15)
+			{
+				return flash ? COLOR_ORANGE : COLOR_RED;
+			}
+			else if (part < 0.3)
+			{
+				return COLOR_LIGHT_ORANGE;
+			}
+			else if (part < 0.6)
+			{
+				return COLOR_YELLOW;
+			}
+			else
+			{
+				return COLOR_GREEN;
+			}
+		}
+		return COLOR_RED;
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class DeltaRingBufferTest
+{
+	@Test
+	public void keepsEntriesOldestFirst()
+	{
+		final DeltaRingBuffer buffer = new DeltaRingBuffer(4);
+		buffer.add(1, 10);
+		buffer.add(-1, 20);
+		buffer.add(2, 30);
+
+		assertEquals(3, buffer.size());
+		assertEquals(1, buffer.getDelta(0));
+		assertEquals(-1, buffer.getDelta(1));
+		assertEquals(2, buffer.getDelta(2));
+		assertEquals(10, buffer.getTime(0));
+		assertEquals(30, buffer.getTime(2));
+	}
+
+	@Test
+	public void overwritesOldestWhenFull()
+	{
+		final DeltaRingBuffer buffer = new DeltaRingBuffer(3);
+		for (int i = 1; i <= 5; i++)
+		{
+			buffer.add(i, i * 100);
+		}
+
+		assertEquals(3, buffer.size());
+		assertEquals(3, buffer.getDelta(0));
+		assertEquals(4, buffer.getDelta(1));
+		assertEquals(5, buffer.getDelta(2));
+		assertEquals(300, buffer.getTime(0));
+		assertEquals(500, buffer.getTime(2));
+	}
+
+	@Test
+	public void wrapsAroundAfterExpiring()
+	{
+		final DeltaRingBuffer buffer = new DeltaRingBuffer(3);
+		buffer.add(1, 0);
+		buffer.add(2, 10);
+		buffer.add(3, 20);
+		buffer.expire(25, 10);
+
+		// Only the newest entry is left, the next two are written past the end of the arrays
+		assertEquals(1, buffer.size());
+		buffer.add(4, 30);
+		buffer.add(5, 40);
+
+		assertEquals(3, buffer.size());
+		assertEquals(3, buffer.getDelta(0));
+		assertEquals(4, buffer.getDelta(1));
+		assertEquals(5, buffer.getDelta(2));
+		assertEquals(40, buffer.getTime(2));
+	}
+
+	@Test
+	public void expiresOnlyEntriesOlderThanMaxAge()
+	{
+		final DeltaRingBuffer buffer = new DeltaRingBuffer(4);
+		buffer.add(1, 0);
+		buffer.add(2, 5);
+		buffer.add(3, 10);
+
+		buffer.expire(10, 5);
+		assertEquals(2, buffer.size());
+		assertEquals(2, buffer.getDelta(0));
+
+		buffer.expire(100, 5);
+		assertTrue(buffer.isEmpty());
+
+		// Expiring an empty buffer is a no-op
+		buffer.expire(200, 5);
+		assertTrue(buffer.isEmpty());
+	}
+
+	@Test
+	public void clearEmptiesBuffer()
+	{
+		final DeltaRingBuffer buffer = new DeltaRingBuffer(2);
+		buffer.add(1, 0);
+		buffer.add(2, 0);
+		buffer.add(3, 0);
+		buffer.clear();
+
+		assertTrue(buffer.isEmpty());
+		buffer.add(7, 1);
+		assertEquals(1, buffer.size());
+		assertEquals(7, buffer.getDelta(0));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void rejectsIndexPastSize()
+	{
+		final DeltaRingBuffer buffer = new DeltaRingBuffer(4);
+		buffer.add(1, 0);
+		buffer.getDelta(1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsNonPositiveCapacity()
+	{
+		new DeltaRingBuffer(0);
+	}
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.testing.fieldbinder.Bind;
+import com.google.inject.testing.fieldbinder.BoundFieldModule;
+import java.awt.Rectangle;
+import java.util.concurrent.ScheduledExecutorService;
+import net.runelite.api.Client;
+import net.runelite.api.DecorativeObject;
+import net.runelite.api.GameState;
+import net.runelite.api.ObjectID;
+import net.runelite.api.Player;
+import net.runelite.api.coords.WorldPoint;
+import net.runelite.api.events.DecorativeObjectDespawned;
+import net.runelite.api.events.DecorativeObjectSpawned;
+import net.runelite.api.events.VarbitChanged;
+import net.runelite.api.widgets.Widget;
+import net.runelite.client.callback.ClientThread;
+import net.runelite.client.chat.ChatMessageManager;
+import net.runelite.client.config.ConfigManager;
+import net.runelite.client.eventbus.EventBus;
+import net.runelite.client.ui.overlay.OverlayManager;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Builds a plugin wired to a stubbed client, for benchmarks and replays.
+ * Mocks are stub only so they do not record invocations, but answering a stubbed call still
+ * allocates a little, which shows up in the allocation rate of the benchmarks using it.
+ */
+class PluginFixture
+{
+	static final int PLAYER_X = 3255;
+	static final int PLAYER_Y = 9517;
+	static final int MAX_TICKS = 100;
+
+	@Bind
+	final Client client = stub(Client.class);
+
+	@Bind
+	final ClientThread clientThread = stub(ClientThread.class);
+
+	@Bind
+	final ConfigManager configManager = stub(ConfigManager.class);
+
+	@Bind
+	final OverlayManager overlayManager = stub(OverlayManager.class);
+
+	@Bind
+	final EventBus eventBus = new EventBus();
+
+	@Bind
+	final ImprovedTearsInterfaceConfig config = stub(ImprovedTearsInterfaceConfig.class);
+
+	@Bind
+	final ScheduledExecutorService executor = stub(ScheduledExecutorService.class);
+
+	@Bind
+	final ChatMessageManager chatMessageManager = stub(ChatMessageManager.class);
+
+	@Bind
+	final TearsClock clock;
+
+	@Bind
+	final ImprovedTearsInterfacePlugin plugin = new ImprovedTearsInterfacePlugin();
+
+	final WidgetStub timeLeftWidget = new WidgetStub(new Rectangle(0, 45, 190, 14));
+	final WidgetStub waterTextWidget = new WidgetStub(new Rectangle(0, 129, 190, 17));
+	final WidgetStub tearsCountWidget = new WidgetStub(new Rectangle(136, 216, 17, 14));
+
+	int varbitTicksLeft = MAX_TICKS;
+	int varbitTearsCollected = 0;
+	int varbitCollecting = 1;
+	int tickCount = 0;
+	WorldPoint location = new WorldPoint(PLAYER_X, PLAYER_Y, ImprovedTearsInterfacePlugin.TEARS_WP_PLANE);
+
+	private final VarbitChanged varbitChanged = new VarbitChanged();
+	private final Injector injector;
+
+	PluginFixture()
+	{
+		this(new TearsClock());
+	}
+
+	PluginFixture(TearsClock clock)
+	{
+		this.clock = clock;
+
+		final Player player = stub(Player.class);
+		when(player.getWorldLocation()).thenAnswer(invocation -> location);
+
+		when(client.getGameState()).thenReturn(GameState.LOGGED_IN);
+		when(client.getLocalPlayer()).thenReturn(player);
+		when(client.getTickCount()).thenAnswer(invocation -> tickCount);
+		when(client.getVarbitValue(anyInt())).thenAnswer(invocation -> getVarbit(invocation.getArgument(0)));
+		when(client.getWidget(eq(ImprovedTearsInterfacePlugin.TEARS_WIDGET_GROUP_ID), anyInt())).thenAnswer(invocation ->
+		{
+			switch ((int) invocation.getArgument(1))
+			{
+				case ImprovedTearsInterfacePlugin.TEARS_WIDGET_CHILD_TIME_TEXT:
+					return timeLeftWidget.widget;
+				case ImprovedTearsInterfacePlugin.TEARS_WIDGET_CHILD_WATER_TEXT:
+					return waterTextWidget.widget;
+				case ImprovedTearsInterfacePlugin.TEARS_WIDGET_CHILD_COUNT_TEXT:
+					return tearsCountWidget.widget;
+				default:
+					return null;
+			}
+		});
+
+		when(config.getFlashingText()).thenReturn(true);
+		when(config.showPlusMinusOnCollect()).thenReturn(true);
+
+		injector = Guice.createInjector(BoundFieldModule.of(this));
+	}
+
+	<T> T get(Class<T> clazz)
+	{
+		return injector.getInstance(clazz);
+	}
+
+	/**
+	 * Puts a blue vein east of the player and takes the plugin past the start of the game.
+	 */
+	void startGame()
+	{
+		spawnVein(PLAYER_X + 1, PLAYER_Y, ImprovedTearsInterfacePlugin.TEARS_WP_PLANE, ObjectID.BLUE_TEARS);
+
+		plugin.onVarbitChanged(varbitChanged);
+		for (int i = 0; i < 10; i++)
+		{
+			tick();
+		}
+	}
+
+	void tick()
+	{
+		tick(tickCount + 1);
+	}
+
+	void tick(int tickCount)
+	{
+		this.tickCount = tickCount;
+		plugin.onGameTick(null);
+	}
+
+	void updateVarbits()
+	{
+		plugin.onVarbitChanged(varbitChanged);
+	}
+
+	void spawnVein(int x, int y, int plane, int objectId)
+	{
+		final DecorativeObjectSpawned event = new DecorativeObjectSpawned();
+		event.setDecorativeObject(vein(x, y, plane, objectId));
+		plugin.onDecorativeObjectSpawned(event);
+	}
+
+	void despawnVein(int x, int y, int plane, int objectId)
+	{
+		final DecorativeObjectDespawned event = new DecorativeObjectDespawned();
+		event.setDecorativeObject(vein(x, y, plane, objectId));
+		plugin.onDecorativeObjectDespawned(event);
+	}
+
+	private static DecorativeObject vein(int x, int y, int plane, int objectId)
+	{
+		final DecorativeObject vein = stub(DecorativeObject.class);
+		when(vein.getId()).thenReturn(objectId);
+		when(vein.getWorldLocation()).thenReturn(new WorldPoint(x, y, plane));
+		return vein;
+	}
+
+	private int getVarbit(int varbit)
+	{
+		switch (varbit)
+		{
+			case 5099:
+				return varbitTicksLeft;
+			case 455:
+				return varbitTearsCollected;
+			case 453:
+				return varbitCollecting;
+			default:
+				return 0;
+		}
+	}
+
+	static <T> T stub(Class<T> clazz)
+	{
+		return mock(clazz, withSettings().stubOnly());
+	}
+
+	/**
+	 * A widget that remembers what was written to it.
+	 */
+	static class WidgetStub
+	{
+		final Widget widget = stub(Widget.class);
+		String text = "";
+		int textColor = 0;
+
+		WidgetStub(Rectangle bounds)
+		{
+			when(widget.getBounds()).thenReturn(bounds);
+			when(widget.getText()).thenAnswer(invocation -> text);
+			when(widget.getTextColor()).thenAnswer(invocation -> textColor);
+			doAnswer(invocation ->
+			{
+				text = invocation.getArgument(0);
+				return null;
+			}).when(widget).setText(anyString());
+			doAnswer(invocation ->
+			{
+				textColor = invocation.getArgument(0);
+				return null;
+			}).when(widget).setTextColor(anyInt());
+		}
+	}
+}
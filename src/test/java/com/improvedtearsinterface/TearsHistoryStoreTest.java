@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TearsHistoryStoreTest
+{
+	private static final String ACCOUNT = "Zezima";
+	// Games are flushed to a new segment every 5, and more than 16 segments get compacted
+	private static final int GAMES_PER_SEGMENT = 5;
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private ScheduledExecutorService executor;
+	private File accountDir;
+
+	@Before
+	public void setUp()
+	{
+		executor = new ScheduledThreadPoolExecutor(1);
+		accountDir = new File(folder.getRoot(), "zezima");
+	}
+
+	@After
+	public void tearDown() throws InterruptedException
+	{
+		executor.shutdownNow();
+		executor.awaitTermination(5, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void compactsSegments() throws Exception
+	{
+		final TearsHistoryStore store = new TearsHistoryStore(executor, folder.getRoot());
+		addGames(store, 17 * GAMES_PER_SEGMENT);
+
+		assertEquals(1, listSegments().length);
+		assertEquals("segment-0-16.bin", listSegments()[0].getName());
+		assertEquals(17 * GAMES_PER_SEGMENT + 1, addGames(new TearsHistoryStore(executor, folder.getRoot()), 1));
+	}
+
+	@Test
+	public void ignoresSegmentsLeftOverFromCompaction() throws Exception
+	{
+		final TearsHistoryStore store = new TearsHistoryStore(executor, folder.getRoot());
+		addGames(store, 16 * GAMES_PER_SEGMENT);
+		final File saved = folder.newFolder("saved");
+		for (File segment : listSegments())
+		{
+			Files.copy(segment.toPath(), new File(saved, segment.getName()).toPath());
+		}
+
+		// Compact, then put the old segments back as if deleting them had failed
+		addGames(store, GAMES_PER_SEGMENT);
+		for (File segment : saved.listFiles())
+		{
+			Files.copy(segment.toPath(), new File(accountDir, segment.getName()).toPath());
+		}
+		assertEquals(17, listSegments().length);
+
+		assertEquals(17 * GAMES_PER_SEGMENT + 1, addGames(new TearsHistoryStore(executor, folder.getRoot()), 1));
+		assertEquals(1, listSegments().length);
+	}
+
+	@Test
+	public void skipsCorruptSegments() throws Exception
+	{
+		final TearsHistoryStore store = new TearsHistoryStore(executor, folder.getRoot());
+		addGames(store, 2 * GAMES_PER_SEGMENT);
+
+		// A record size smaller than a record, and a count that doesn't fit in the file
+		writeSegmentHeader(new File(accountDir, "segment-7.bin"), 4, 1);
+		writeSegmentHeader(new File(accountDir, "segment-8.bin"), 20, 1000);
+
+		assertEquals(2 * GAMES_PER_SEGMENT + 1, addGames(new TearsHistoryStore(executor, folder.getRoot()), 1));
+	}
+
+	/**
+	 * Adds games of 100 tears, waits for the last one to be stored and returns the account's game count.
+	 */
+	private static int addGames(TearsHistoryStore store, int games) throws Exception
+	{
+		final CompletableFuture<Integer> count = new CompletableFuture<>();
+		for (int i = 0; i < games; i++)
+		{
+			final TearsSessionSummary summary = new TearsSessionSummary(i, 100, 200, new int[]{50, 0, 0, 150});
+			store.add(ACCOUNT, summary, new TearsTileHeatmap(), i < games - 1 ? null : stats -> count.complete(stats.getGames()));
+		}
+		return count.get(5, TimeUnit.SECONDS);
+	}
+
+	private File[] listSegments()
+	{
+		final File[] segments = accountDir.listFiles((dir, name) -> name.startsWith("segment-") && name.endsWith(".bin"));
+		assertFalse(segments == null);
+		return segments;
+	}
+
+	private static void writeSegmentHeader(File file, int recordSize, int count) throws IOException
+	{
+		try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file)))
+		{
+			out.writeInt(0x544F4748);
+			out.writeShort(1);
+			out.writeShort(recordSize);
+			out.writeInt(count);
+			out.write(new byte[20]);
+		}
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface;
+
+import static com.improvedtearsinterface.TearCollectingState.BLUE_VEIN;
+import static com.improvedtearsinterface.TearCollectingState.GREEN_VEIN;
+import static com.improvedtearsinterface.TearCollectingState.NOT_COLLECTING;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class TearsReactionTrackerTest
+{
+	private final TearsReactionTracker tracker = new TearsReactionTracker();
+
+	@Test
+	public void countsTicksUntilThePlayerMoves()
+	{
+		tracker.update(100, BLUE_VEIN, true, 3255, 9519, 1);
+		tracker.update(101, GREEN_VEIN, true, 3255, 9519, -1);
+		tracker.update(102, GREEN_VEIN, true, 3255, 9519, -1);
+		tracker.update(103, NOT_COLLECTING, false, 3256, 9518, 0);
+
+		assertEquals(1, tracker.getReactions());
+		assertEquals(1, tracker.getCount(2));
+		assertEquals(2, tracker.getTearsLost());
+	}
+
+	@Test
+	public void bucketsFastestReactionAsOneTick()
+	{
+		tracker.update(100, BLUE_VEIN, true, 3255, 9519, 1);
+		tracker.update(101, GREEN_VEIN, true, 3255, 9519, 0);
+		tracker.update(102, NOT_COLLECTING, false, 3255, 9519, 0);
+
+		assertEquals(1, tracker.getCount(1));
+		assertEquals(1, tracker.getMedianTicks());
+		assertEquals(1.0, tracker.getAverageTicks(), 0);
+	}
+
+	@Test
+	public void slowReactionsGoInTheLastBucket()
+	{
+		tracker.update(100, BLUE_VEIN, true, 3255, 9519, 1);
+		tracker.update(101, GREEN_VEIN, true, 3255, 9519, 0);
+		tracker.update(130, NOT_COLLECTING, false, 3256, 9519, 0);
+
+		assertEquals(1, tracker.getCount(TearsReactionTracker.MAX_TICKS));
+		assertEquals(TearsReactionTracker.MAX_TICKS, tracker.getMedianTicks());
+	}
+
+	@Test
+	public void ignoresChangesWhileWalking()
+	{
+		tracker.update(100, BLUE_VEIN, true, 3255, 9519, 1);
+		tracker.update(101, GREEN_VEIN, true, 3256, 9519, 0);
+		tracker.update(102, NOT_COLLECTING, false, 3257, 9519, 0);
+
+		assertEquals(0, tracker.getReactions());
+	}
+
+	@Test
+	public void ignoresChangesWhenNotCollecting()
+	{
+		tracker.update(100, BLUE_VEIN, false, 3255, 9519, 0);
+		tracker.update(101, GREEN_VEIN, true, 3255, 9519, 0);
+		tracker.update(102, GREEN_VEIN, true, 3256, 9519, 0);
+
+		assertEquals(0, tracker.getReactions());
+	}
+
+	@Test
+	public void stopsWaitingWhenTheVeinTurnsBlueAgain()
+	{
+		tracker.update(100, BLUE_VEIN, true, 3255, 9519, 1);
+		tracker.update(101, GREEN_VEIN, true, 3255, 9519, 0);
+		tracker.update(102, BLUE_VEIN, true, 3255, 9519, 1);
+		tracker.update(103, NOT_COLLECTING, false, 3256, 9519, 0);
+
+		assertEquals(0, tracker.getReactions());
+	}
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import net.runelite.api.Constants;
+import net.runelite.api.coords.WorldPoint;
+
+/**
+ * Replays sessions recorded by {@link TearsInputRecorder} through the plugin without a client,
+ * as fast as the plugin can process them, on a clock that advances one game tick per tick record.
+ * Takes recording files or directories of them as arguments and prints a summary of each.
+ */
+public class TearsReplay
+{
+	private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(Constants.GAME_TICK_LENGTH);
+
+	public static void main(String[] args) throws Exception
+	{
+		final List<File> files = new ArrayList<>();
+		for (String arg : args.length > 0 ? args : new String[]{TearsInputRecorder.RECORDINGS_DIR.getPath()})
+		{
+			final File file = new File(arg);
+			final File[] children = file.listFiles((dir, name) -> name.endsWith(TearsInputRecorder.FILE_EXTENSION));
+			if (children != null)
+			{
+				Arrays.sort(children);
+				files.addAll(Arrays.asList(children));
+			}
+			else
+			{
+				files.add(file);
+			}
+		}
+
+		if (files.isEmpty())
+		{
+			System.err.println("No recordings to replay");
+			System.exit(1);
+		}
+
+		int failed = 0;
+		for (File file : files)
+		{
+			try
+			{
+				System.out.println(replay(file));
+			}
+			catch (IOException | RuntimeException e)
+			{
+				System.err.println(file + ": " + e);
+				failed++;
+			}
+		}
+		System.exit(failed == 0 ? 0 : 1);
+	}
+
+	static Result replay(File file) throws IOException
+	{
+		try (InputStream in = new FileInputStream(file))
+		{
+			return replay(file.getName(), in, null);
+		}
+	}
+
+	/**
+	 * Replays a recording, calling the listener after every tick so the caller can look at what
+	 * the plugin wrote to the interface. The listener may be null.
+	 */
+	static Result replay(String name, InputStream input, TickListener listener) throws IOException
+	{
+		final ReplayClock clock = new ReplayClock();
+		final PluginFixture fixture = new PluginFixture(clock);
+		final ImprovedTearsInterfacePlugin plugin = fixture.plugin;
+		final Result result = new Result(name, fixture);
+		fixture.varbitTicksLeft = 0;
+		fixture.varbitCollecting = 0;
+
+		final long start = System.nanoTime();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(input)))
+		{
+			if (in.readInt() != TearsInputRecorder.MAGIC)
+			{
+				throw new IOException("Not a recording");
+			}
+			final short version = in.readShort();
+			if (version != TearsInputRecorder.VERSION)
+			{
+				throw new IOException("Unsupported recording version " + version);
+			}
+
+			while (true)
+			{
+				final int type = in.read();
+				if (type == -1)
+				{
+					break;
+				}
+
+				switch (type)
+				{
+					case TearsInputRecorder.RECORD_TICK:
+					{
+						final int tickCount = in.readInt();
+						final int ticksLeft = in.readShort();
+						final int tearsCollected = in.readShort();
+						final int collecting = in.readByte();
+						fixture.location = new WorldPoint(in.readShort(), in.readShort(), in.readByte());
+
+						if (ticksLeft != fixture.varbitTicksLeft || tearsCollected != fixture.varbitTearsCollected
+							|| collecting != fixture.varbitCollecting)
+						{
+							fixture.varbitTicksLeft = ticksLeft;
+							fixture.varbitTearsCollected = tearsCollected;
+							fixture.varbitCollecting = collecting;
+							fixture.updateVarbits();
+						}
+
+						clock.advance(TICK_NANOS);
+						fixture.tick(tickCount);
+
+						result.ticks++;
+						result.finalTears = Math.max(result.finalTears, plugin.getTearsCollected());
+						result.stateTicks[plugin.getCollectingState().ordinal()]++;
+						if (listener != null)
+						{
+							listener.onTick(tickCount, fixture);
+						}
+						break;
+					}
+					case TearsInputRecorder.RECORD_VEIN_SPAWNED:
+					case TearsInputRecorder.RECORD_VEIN_DESPAWNED:
+					{
+						final int x = in.readShort();
+						final int y = in.readShort();
+						final int plane = in.readByte();
+						final int objectId = in.readShort() & 0xFFFF;
+						if (type == TearsInputRecorder.RECORD_VEIN_SPAWNED)
+						{
+							fixture.spawnVein(x, y, plane, objectId);
+						}
+						else
+						{
+							fixture.despawnVein(x, y, plane, objectId);
+						}
+						break;
+					}
+					default:
+						throw new IOException("Unknown record type " + type);
+				}
+			}
+		}
+		catch (EOFException e)
+		{
+			throw new IOException("Recording is truncated", e);
+		}
+		result.elapsedNanos = System.nanoTime() - start;
+		return result;
+	}
+
+	interface TickListener
+	{
+		void onTick(int tickCount, PluginFixture fixture);
+	}
+
+	static class ReplayClock extends TearsClock
+	{
+		private long now = 0;
+
+		@Override
+		long nanoTime()
+		{
+			return now;
+		}
+
+		void advance(long nanos)
+		{
+			now += nanos;
+		}
+	}
+
+	static class Result
+	{
+		final String name;
+		final PluginFixture fixture;
+		int ticks = 0;
+		int finalTears = 0;
+		final int[] stateTicks = new int[TearCollectingState.values().length];
+		long elapsedNanos = 0;
+
+		Result(String name, PluginFixture fixture)
+		{
+			this.name = name;
+			this.fixture = fixture;
+		}
+
+		@Override
+		public String toString()
+		{
+			final StringBuilder sb = new StringBuilder();
+			sb.append(name)
+				.append(": ").append(ticks).append(" ticks")
+				.append(", ").append(finalTears).append(" tears");
+			for (TearCollectingState state : TearCollectingState.values())
+			{
+				sb.append(", ").append(state).append('=').append(stateTicks[state.ordinal()]);
+			}
+
+			final double elapsedMillis = elapsedNanos / 1_000_000.0;
+			sb.append(String.format(", replayed in %.1f ms (%.0fx real time)",
+				elapsedMillis, ticks * (double) Constants.GAME_TICK_LENGTH / Math.max(elapsedMillis, 0.001)));
+			return sb.toString();
+		}
+	}
+}
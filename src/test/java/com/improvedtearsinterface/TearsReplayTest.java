@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface;
+
+import static com.improvedtearsinterface.engine.TearsEngine.COLOR_DARK_GREEN;
+import static com.improvedtearsinterface.engine.TearsEngine.COLOR_GREEN;
+import static com.improvedtearsinterface.engine.TearsEngine.COLOR_LIGHT_BLUE;
+import static com.improvedtearsinterface.engine.TearsEngine.COLOR_ORANGE;
+import static com.improvedtearsinterface.engine.TearsEngine.COLOR_RED;
+import static com.improvedtearsinterface.engine.TearsEngine.COLOR_YELLOW;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Replays short-game.togr, a hand made recording of a 20 tick game: the player walks in on tick 101,
+ * collects from a blue vein east of them from tick 111, loses a tear when it turns green on tick 120,
+ * steps away on tick 121 and leaves the cave once the timer runs out on tick 130.
+ * Flashing text is on in the fixture, so colours flash on odd ticks.
+ */
+public class TearsReplayTest
+{
+	private static final String RECORDING = "short-game.togr";
+
+	private final Map<Integer, Written> written = new HashMap<>();
+
+	@Test
+	public void replaysFinalCounters() throws IOException
+	{
+		final TearsReplay.Result result = replay();
+
+		assertEquals(32, result.ticks);
+		assertEquals(4, result.finalTears);
+		assertEquals(22, result.stateTicks[TearCollectingState.NOT_COLLECTING.ordinal()]);
+		assertEquals(0, result.stateTicks[TearCollectingState.EMPTY_VEIN.ordinal()]);
+		assertEquals(1, result.stateTicks[TearCollectingState.GREEN_VEIN.ordinal()]);
+		assertEquals(9, result.stateTicks[TearCollectingState.BLUE_VEIN.ordinal()]);
+
+		// The game was over and the player left, so the plugin is back to waiting for the next one
+		assertEquals(0, result.fixture.plugin.getMaxTicks());
+		assertEquals(0, result.fixture.plugin.getTearsCollected());
+	}
+
+	@Test
+	public void writesStartCountdown() throws IOException
+	{
+		replay();
+
+		assertWater(101, "Get Ready!", COLOR_DARK_GREEN);
+		assertTicksLeft(101, 20, COLOR_GREEN);
+		assertWater(105, "Starting in: 5 ticks", COLOR_DARK_GREEN);
+		assertWater(108, "Starting in: 2 ticks", COLOR_GREEN);
+		assertWater(109, "Starting in: 1 tick", COLOR_DARK_GREEN);
+		// The timer holds still until the countdown is over
+		assertTicksLeft(110, 20, COLOR_GREEN);
+	}
+
+	@Test
+	public void writesCollectingState() throws IOException
+	{
+		replay();
+
+		assertTicksLeft(112, 18, COLOR_GREEN);
+		assertTrue(written.get(112).waterText.contains(" Blue "));
+		assertEquals(COLOR_LIGHT_BLUE, written.get(112).waterColor);
+		assertEquals(COLOR_GREEN, written.get(112).countColor);
+		assertEquals(COLOR_YELLOW, written.get(113).countColor);
+
+		// The varbit jumps to 15 on tick 115 and the count down carries on from there
+		assertTicksLeft(115, 15, COLOR_GREEN);
+		assertTicksLeft(119, 11, COLOR_YELLOW);
+
+		assertTicksLeft(120, 10, COLOR_YELLOW);
+		assertTrue(written.get(120).waterText.contains(" Green "));
+		assertEquals(COLOR_GREEN, written.get(120).waterColor);
+		assertEquals(COLOR_RED, written.get(120).countColor);
+
+		assertWater(122, "Not Collecting", COLOR_YELLOW);
+		assertEquals(COLOR_YELLOW, written.get(122).countColor);
+	}
+
+	@Test
+	public void writesEndOfGame() throws IOException
+	{
+		replay();
+
+		assertTicksLeft(128, 2, COLOR_RED);
+		assertTicksLeft(129, 1, COLOR_ORANGE);
+		assertTicksLeft(130, 0, COLOR_RED);
+		assertWater(130, "Time Up!", COLOR_RED);
+	}
+
+	private TearsReplay.Result replay() throws IOException
+	{
+		try (InputStream in = TearsReplayTest.class.getResourceAsStream(RECORDING))
+		{
+			return TearsReplay.replay(RECORDING, in, (tickCount, fixture) -> written.put(tickCount, new Written(fixture)));
+		}
+	}
+
+	private void assertWater(int tick, String text, int color)
+	{
+		assertEquals("Water text on tick " + tick, text, written.get(tick).waterText);
+		assertEquals("Water colour on tick " + tick, color, written.get(tick).waterColor);
+	}
+
+	private void assertTicksLeft(int tick, int ticksLeft, int color)
+	{
+		final String text = written.get(tick).timeText;
+		assertTrue("Ticks left on tick " + tick + " was " + text, text.endsWith(" " + ticksLeft + " / 20"));
+		assertEquals("Ticks left colour on tick " + tick, color, written.get(tick).timeColor);
+	}
+
+	/**
+	 * What the interface showed after a tick.
+	 */
+	private static class Written
+	{
+		final String timeText;
+		final int timeColor;
+		final String waterText;
+		final int waterColor;
+		final int countColor;
+
+		Written(PluginFixture fixture)
+		{
+			timeText = fixture.timeLeftWidget.text;
+			timeColor = fixture.timeLeftWidget.textColor;
+			waterText = fixture.waterTextWidget.text;
+			waterColor = fixture.waterTextWidget.textColor;
+			countColor = fixture.tearsCountWidget.textColor;
+		}
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TearsWatchdogTest
+{
+	private static final int TICK_BUDGET_MICROS = 1000;
+	private static final int FRAME_BUDGET_MICROS = 250;
+
+	private final TearsWatchdog watchdog = new TearsWatchdog();
+
+	@Before
+	public void setUp()
+	{
+		watchdog.configure(true, TICK_BUDGET_MICROS, FRAME_BUDGET_MICROS);
+	}
+
+	@Test
+	public void shedsTickWorkInOrder()
+	{
+		ticks(3, 5000);
+		assertEquals(DegradationLevel.NO_ANALYTICS, watchdog.getTickLevel());
+		assertFalse(watchdog.isShedding(DegradationLevel.NO_FLASHING));
+
+		ticks(3, 5000);
+		assertEquals(DegradationLevel.NO_FLASHING, watchdog.getTickLevel());
+		assertTrue(watchdog.isShedding(DegradationLevel.NO_ANALYTICS));
+		assertTrue(watchdog.isShedding(DegradationLevel.NO_FLASHING));
+
+		// Nothing left to shed on the tick, and the frame's work is left alone
+		ticks(30, 5000);
+		assertEquals(2, watchdog.getShedCount());
+		assertFalse(watchdog.isShedding(DegradationLevel.NO_ANIMATION));
+	}
+
+	@Test
+	public void shedsFrameWorkOnlyForSlowFrames()
+	{
+		frames(29, 1000);
+		assertEquals(DegradationLevel.NONE, watchdog.getFrameLevel());
+		frames(1, 1000);
+		assertEquals(DegradationLevel.NO_ANIMATION, watchdog.getFrameLevel());
+		assertEquals(DegradationLevel.NONE, watchdog.getTickLevel());
+	}
+
+	@Test
+	public void bringsWorkBackOnceTheLoadIsGone()
+	{
+		frames(30, 1000);
+		frames(1000, 10);
+		assertEquals(DegradationLevel.NONE, watchdog.getFrameLevel());
+
+		// The trial passes, and it stays on
+		frames(100000, 10);
+		assertEquals(DegradationLevel.NONE, watchdog.getFrameLevel());
+	}
+
+	@Test
+	public void doesNotFlapWhenTheShedFrameWorkIsWhatIsSlow()
+	{
+		// Rendering the +1/-1 takes 400us, skipping it almost nothing
+		int changes = 0;
+		DegradationLevel last = watchdog.getFrameLevel();
+		for (int i = 0; i < 100000; i++)
+		{
+			frames(1, watchdog.isShedding(DegradationLevel.NO_ANIMATION) ? 1 : 400);
+			if (watchdog.getFrameLevel() != last)
+			{
+				last = watchdog.getFrameLevel();
+				changes++;
+			}
+		}
+
+		// Shed, brought back for a trial, shed again for good
+		assertEquals(3, changes);
+		assertEquals(DegradationLevel.NO_ANIMATION, watchdog.getFrameLevel());
+	}
+
+	@Test
+	public void doesNotFlapWhenTheShedTickWorkIsWhatIsSlow()
+	{
+		// Analytics take the tick over budget, the rest of it is well under
+		int changes = 0;
+		int last = watchdog.getShedCount();
+		for (int i = 0; i < 10000; i++)
+		{
+			ticks(1, watchdog.isShedding(DegradationLevel.NO_ANALYTICS) ? 100 : 2000);
+			if (watchdog.getShedCount() != last)
+			{
+				last = watchdog.getShedCount();
+				changes++;
+			}
+		}
+
+		assertEquals(3, changes);
+		assertEquals(DegradationLevel.NO_ANALYTICS, watchdog.getTickLevel());
+		assertFalse(watchdog.isShedding(DegradationLevel.NO_FLASHING));
+	}
+
+	@Test
+	public void retriesFailedWorkOnTheNextGame()
+	{
+		frames(30, 1000);
+		frames(1000, 10);
+		frames(30, 1000);
+		frames(10000, 10);
+		assertEquals(DegradationLevel.NO_ANIMATION, watchdog.getFrameLevel());
+
+		watchdog.retryShedWork();
+		frames(1000, 10);
+		assertEquals(DegradationLevel.NONE, watchdog.getFrameLevel());
+	}
+
+	@Test
+	public void measuresNothingWhenDisabled()
+	{
+		watchdog.configure(false, TICK_BUDGET_MICROS, FRAME_BUDGET_MICROS);
+		assertEquals(0, watchdog.start());
+		watchdog.recordTick(0);
+		assertEquals(0, watchdog.getShedCount());
+	}
+
+	private void ticks(int count, long micros)
+	{
+		for (int i = 0; i < count; i++)
+		{
+			watchdog.recordTickTime(micros * 1000);
+		}
+	}
+
+	private void frames(int count, long micros)
+	{
+		for (int i = 0; i < count; i++)
+		{
+			watchdog.recordFrameTime(micros * 1000);
+		}
+	}
+}
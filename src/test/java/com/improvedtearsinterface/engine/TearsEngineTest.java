@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2021, Cyborger1
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.improvedtearsinterface.engine;
+
+import static com.improvedtearsinterface.engine.TearsEngine.AREA_CAVE;
+import static com.improvedtearsinterface.engine.TearsEngine.AREA_ENTRANCE;
+import static com.improvedtearsinterface.engine.TearsEngine.AREA_OUTSIDE;
+import static com.improvedtearsinterface.engine.TearsEngine.STATE_BLUE_VEIN;
+import static com.improvedtearsinterface.engine.TearsEngine.STATE_GREEN_VEIN;
+import static com.improvedtearsinterface.engine.TearsEngine.STATE_NOT_COLLECTING;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class TearsEngineTest
+{
+	private static final int MAX_TICKS = 100;
+
+	private final TearsEngine engine = new TearsEngine();
+	private int tick = 0;
+
+	@Test
+	public void countsDownBetweenVarbitChanges()
+	{
+		assertEquals(TearsEngine.TIMER_STARTED, advance(MAX_TICKS, AREA_ENTRANCE, 0, STATE_NOT_COLLECTING));
+		assertEquals(MAX_TICKS, engine.getMaxTicks());
+		assertEquals(TearsEngine.TICKS_FROM_JUNAS_TAIL, engine.getMinigameStarting());
+		assertEquals(TearsEngine.MESSAGE_GET_READY, engine.getMessage());
+		assertFalse(engine.isCounting());
+
+		startGame();
+		assertTrue(engine.isCounting());
+		assertEquals(MAX_TICKS, engine.getDisplayedTicksLeft());
+
+		// The varbit stays put for a few ticks, the engine counts down on its own
+		assertEquals(TearsEngine.TIMER_RUNNING, advance(MAX_TICKS, AREA_CAVE, 1, STATE_BLUE_VEIN));
+		assertEquals(MAX_TICKS - 1, engine.getDisplayedTicksLeft());
+		advance(MAX_TICKS, AREA_CAVE, 2, STATE_BLUE_VEIN);
+		assertEquals(MAX_TICKS - 2, engine.getDisplayedTicksLeft());
+		assertEquals(2, engine.getTearsCollected());
+		assertEquals(1, engine.getTearsDiff());
+		assertEquals(TearsEngine.MESSAGE_BLUE_VEIN, engine.getMessage());
+
+		// And snaps back to the varbit whenever it changes
+		advance(MAX_TICKS - 5, AREA_CAVE, 2, STATE_BLUE_VEIN);
+		assertEquals(MAX_TICKS - 5, engine.getDisplayedTicksLeft());
+	}
+
+	@Test
+	public void showsTheCountdownBeforeTheGame()
+	{
+		advance(MAX_TICKS, AREA_ENTRANCE, 0, STATE_NOT_COLLECTING);
+
+		// Standing in the entrance doesn't start the countdown
+		advance(MAX_TICKS, AREA_ENTRANCE, 0, STATE_NOT_COLLECTING);
+		assertEquals(TearsEngine.TICKS_FROM_JUNAS_TAIL, engine.getMinigameStarting());
+
+		for (int left = TearsEngine.TICKS_FROM_JUNAS_TAIL - 1; left > 0; left--)
+		{
+			advance(MAX_TICKS, AREA_CAVE, 0, STATE_NOT_COLLECTING);
+			assertEquals(left, engine.getMinigameStarting());
+			assertEquals(left >= TearsEngine.TICKS_FOR_START_TIMER ? TearsEngine.MESSAGE_GET_READY
+				: TearsEngine.MESSAGE_STARTING_IN, engine.getMessage());
+			assertEquals(MAX_TICKS, engine.getDisplayedTicksLeft());
+		}
+	}
+
+	@Test
+	public void makesUpForLaggedTicks()
+	{
+		startGame();
+
+		advance(MAX_TICKS, AREA_CAVE, 0, STATE_BLUE_VEIN, 3);
+		assertEquals(MAX_TICKS - 3, engine.getDisplayedTicksLeft());
+
+		// Never counts past 0 while waiting for the varbit
+		advance(2, AREA_CAVE, 0, STATE_BLUE_VEIN);
+		advance(2, AREA_CAVE, 0, STATE_BLUE_VEIN, 5);
+		assertEquals(0, engine.getDisplayedTicksLeft());
+		assertFalse(engine.isMinigameEnding());
+	}
+
+	@Test
+	public void ignoresTheTimerOutsideTheMinigameArea()
+	{
+		assertEquals(TearsEngine.TIMER_IDLE, advance(MAX_TICKS, AREA_OUTSIDE, 0, STATE_NOT_COLLECTING));
+		assertFalse(engine.isInMinigame());
+		assertEquals(0, engine.getMaxTicks());
+
+		assertEquals(TearsEngine.TIMER_STARTED, advance(MAX_TICKS, AREA_ENTRANCE, 0, STATE_NOT_COLLECTING));
+		assertTrue(engine.isInMinigame());
+	}
+
+	@Test
+	public void waitsForTheNextGameWhenTurnedOnMidGame()
+	{
+		engine.setTurnedOnDuringMinigame();
+		assertEquals(TearsEngine.TIMER_IDLE, advance(50, AREA_CAVE, 10, STATE_BLUE_VEIN));
+		assertFalse(engine.isInMinigame());
+
+		// Leaving the cave clears it, and the next game starts normally
+		assertEquals(TearsEngine.TIMER_IDLE, advance(0, AREA_OUTSIDE, 0, STATE_NOT_COLLECTING));
+		assertFalse(engine.isTurnedOnDuringMinigame());
+		assertEquals(TearsEngine.TIMER_STARTED, advance(MAX_TICKS, AREA_ENTRANCE, 0, STATE_NOT_COLLECTING));
+	}
+
+	@Test
+	public void saysTimeUpUntilThePlayerLeaves()
+	{
+		startGame();
+		advance(5, AREA_CAVE, 12, STATE_BLUE_VEIN);
+
+		engine.advanceTimer(0, AREA_CAVE, 1);
+		assertFalse(engine.updateTears(tick++, 12, STATE_GREEN_VEIN, AREA_CAVE, false));
+		assertTrue(engine.isMinigameEnding());
+		assertFalse(engine.isCounting());
+		assertEquals(0, engine.getDisplayedTicksLeft());
+		assertEquals(TearsEngine.MESSAGE_TIME_UP, engine.getMessage());
+		assertEquals(TearsEngine.COLOR_RED, engine.getMessageColor());
+		assertEquals(TearsEngine.COLOR_RED, engine.getTicksLeftColor());
+
+		engine.advanceTimer(0, AREA_ENTRANCE, 1);
+		assertTrue(engine.updateTears(tick++, 12, STATE_NOT_COLLECTING, AREA_ENTRANCE, false));
+		assertEquals(12, engine.getTearsCollected());
+
+		engine.reset();
+		assertFalse(engine.isInMinigame());
+		assertEquals(0, engine.getMaxTicks());
+	}
+
+	@Test
+	public void colorsTheTearCountByChange()
+	{
+		startGame();
+
+		advance(MAX_TICKS, AREA_CAVE, 1, STATE_BLUE_VEIN);
+		assertEquals(TearsEngine.COLOR_GREEN, engine.getTearsCountColor());
+		advance(MAX_TICKS, AREA_CAVE, 0, STATE_GREEN_VEIN);
+		assertEquals(TearsEngine.COLOR_RED, engine.getTearsCountColor());
+		advance(MAX_TICKS, AREA_CAVE, 0, STATE_NOT_COLLECTING);
+		assertEquals(TearsEngine.COLOR_YELLOW, engine.getTearsCountColor());
+	}
+
+	@Test
+	public void colorsTicksLeftByFractionOfTheGame()
+	{
+		assertEquals(TearsEngine.COLOR_GREEN, TearsEngine.getTicksLeftColor(100, 100, false));
+		assertEquals(TearsEngine.COLOR_GREEN, TearsEngine.getTicksLeftColor(60, 100, false));
+		assertEquals(TearsEngine.COLOR_YELLOW, TearsEngine.getTicksLeftColor(59, 100, false));
+		assertEquals(TearsEngine.COLOR_YELLOW, TearsEngine.getTicksLeftColor(30, 100, true));
+		assertEquals(TearsEngine.COLOR_LIGHT_ORANGE, TearsEngine.getTicksLeftColor(29, 100, false));
+		assertEquals(TearsEngine.COLOR_LIGHT_ORANGE, TearsEngine.getTicksLeftColor(15, 100, true));
+		assertEquals(TearsEngine.COLOR_RED, TearsEngine.getTicksLeftColor(14, 100, false));
+		assertEquals(TearsEngine.COLOR_ORANGE, TearsEngine.getTicksLeftColor(14, 100, true));
+		assertEquals(TearsEngine.COLOR_RED, TearsEngine.getTicksLeftColor(0, 100, false));
+		assertEquals(TearsEngine.COLOR_RED, TearsEngine.getTicksLeftColor(10, 0, false));
+	}
+
+	@Test
+	public void colorsTicksLeftThroughTheGame()
+	{
+		startGame();
+		for (int left = MAX_TICKS; left >= 0; left--)
+		{
+			final boolean flash = left % 2 == 0;
+			engine.advanceTimer(left, AREA_CAVE, 1);
+			engine.updateTears(flash ? 1 : 2, 0, STATE_BLUE_VEIN, AREA_CAVE, true);
+			assertEquals(TearsEngine.getTicksLeftColor(left, MAX_TICKS, flash), engine.getTicksLeftColor());
+		}
+	}
+
+	@Test
+	public void flashesOnOddTicksOnly()
+	{
+		startGame();
+		advance(10, AREA_CAVE, 0, STATE_NOT_COLLECTING);
+
+		engine.advanceTimer(10, AREA_CAVE, 1);
+		engine.updateTears(41, 0, STATE_BLUE_VEIN, AREA_CAVE, true);
+		assertTrue(engine.isFlash());
+		assertEquals(TearsEngine.COLOR_ORANGE, engine.getTicksLeftColor());
+		assertEquals(TearsEngine.COLOR_BLUE, engine.getMessageColor());
+
+		engine.advanceTimer(10, AREA_CAVE, 1);
+		engine.updateTears(42, 0, STATE_BLUE_VEIN, AREA_CAVE, true);
+		assertFalse(engine.isFlash());
+		assertEquals(TearsEngine.COLOR_RED, engine.getTicksLeftColor());
+		assertEquals(TearsEngine.COLOR_LIGHT_BLUE, engine.getMessageColor());
+	}
+
+	/**
+	 * Enters the minigame and waits out the countdown, leaving the engine on the first counted tick.
+	 */
+	private void startGame()
+	{
+		advance(MAX_TICKS, AREA_ENTRANCE, 0, STATE_NOT_COLLECTING);
+		for (int i = 0; i < TearsEngine.TICKS_FROM_JUNAS_TAIL; i++)
+		{
+			advance(MAX_TICKS, AREA_CAVE, 0, STATE_NOT_COLLECTING);
+		}
+	}
+
+	private int advance(int varbitTicksLeft, int area, int tears, int state)
+	{
+		return advance(varbitTicksLeft, area, tears, state, 1);
+	}
+
+	private int advance(int varbitTicksLeft, int area, int tears, int state, int elapsedTicks)
+	{
+		final int result = engine.advanceTimer(varbitTicksLeft, area, elapsedTicks);
+		if (result != TearsEngine.TIMER_IDLE)
+		{
+			engine.updateTears(tick++, tears, state, area, false);
+		}
+		return result;
+	}
+}